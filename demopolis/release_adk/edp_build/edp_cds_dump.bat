@@ -0,0 +1,11 @@
+@echo off
+rem AppCDS (-XX:+UnlockCommercialFeatures -XX:+UseAppCDS) is a commercial feature of the Oracle JDK 8
+rem and requires an Oracle commercial license for production use. Other JVMs reject the flags, then CDS is skipped.
+java -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -version >nul 2>&1
+if errorlevel 1 (
+	echo AppCDS not supported by this JVM, skipping class data sharing dump
+	goto :eof
+)
+rem starts the kiosk, which quits by itself after the first frame
+java -Xmx2048m -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -XX:DumpLoadedClassList=edp.classlist -Dedp.exit_after_first_frame=true -jar edp.jar ap true
+java -Xmx2048m -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -Xshare:dump -XX:SharedClassListFile=edp.classlist -XX:SharedArchiveFile=edp.jsa -cp edp.jar
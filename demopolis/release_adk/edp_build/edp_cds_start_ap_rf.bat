@@ -0,0 +1,8 @@
+@echo off
+rem AppCDS requires the Oracle JDK 8 (commercial license), see edp_cds_dump.bat. Falls back to a regular start.
+java -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -version >nul 2>&1
+if errorlevel 1 (
+	java -Xmx2048m -jar edp.jar ap_rf true
+) else (
+	java -Xmx2048m -XX:+UnlockCommercialFeatures -XX:+UseAppCDS -Xshare:auto -XX:SharedArchiveFile=edp.jsa -jar edp.jar ap_rf true
+)
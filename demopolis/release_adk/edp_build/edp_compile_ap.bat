@@ -0,0 +1 @@
+java -Xmx2048m -cp edp.jar ch.fhnw.demopolis.main.ScenarioCompiler ap edp_ap.bundle
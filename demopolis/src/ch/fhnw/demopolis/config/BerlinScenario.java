@@ -32,10 +32,13 @@ package ch.fhnw.demopolis.config;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 
 import ch.fhnw.demopolis.model.IScenario;
+import ch.fhnw.demopolis.model.ScenarioLoader;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
 import ch.fhnw.util.math.Vec3;
 import ch.fhnw.util.math.geometry.BoundingBox;
 
@@ -52,146 +55,154 @@ public final class BerlinScenario implements IScenario {
 	private static final String STATIC_BUILDINGS = "berlin3d/buildings_static.obj";
 	private static final String STATIC_TRAIN = "berlin3d/train_static.obj";
 	
-	private static final IDesignEntity[] BLOCKS_AP = {
-		IScenario.block("berlin3d/blocks/block_bl_19.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_20.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_21.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_22.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_23.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_24.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_25.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_26.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_27.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_28.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_29.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_30.obj"),
-		IScenario.block("berlin3d/blocks/block_c_04.obj"),
-		IScenario.block("berlin3d/blocks/block_s_26.obj"),
-		IScenario.block("berlin3d/blocks/block_s_27.obj"),
-		IScenario.block("berlin3d/blocks/block_s_28.obj"),
-		IScenario.block("berlin3d/blocks/block_s_29.obj"),
-		IScenario.block("berlin3d/blocks/block_s_30.obj"),
-		IScenario.block("berlin3d/blocks/block_s_31.obj"),
-		IScenario.block("berlin3d/blocks/block_s_32.obj"),
-		IScenario.block("berlin3d/blocks/block_s_33.obj"),
-		IScenario.block("berlin3d/blocks/block_s_34.obj"),
-		IScenario.block("berlin3d/blocks/block_s_35.obj"),
-		IScenario.block("berlin3d/blocks/block_s_36.obj"),
-		IScenario.block("berlin3d/blocks/block_s_37.obj"),
-		IScenario.block("berlin3d/blocks/block_s_38.obj"),
-		IScenario.block("berlin3d/blocks/block_s_39.obj"),
-		IScenario.block("berlin3d/blocks/block_s_40.obj"),
-		IScenario.block("berlin3d/blocks/block_s_41.obj"),
-		IScenario.block("berlin3d/blocks/block_s_42.obj"),
-		IScenario.block("berlin3d/blocks/block_s_43.obj"),
-		IScenario.block("berlin3d/blocks/block_s_44.obj"),
-		IScenario.block("berlin3d/blocks/block_s_45.obj"),
+	private static final String[] BLOCKS_AP = {
+		"berlin3d/blocks/block_bl_19.obj",
+		"berlin3d/blocks/block_bl_20.obj",
+		"berlin3d/blocks/block_bl_21.obj",
+		"berlin3d/blocks/block_bl_22.obj",
+		"berlin3d/blocks/block_bl_23.obj",
+		"berlin3d/blocks/block_bl_24.obj",
+		"berlin3d/blocks/block_bl_25.obj",
+		"berlin3d/blocks/block_bl_26.obj",
+		"berlin3d/blocks/block_bl_27.obj",
+		"berlin3d/blocks/block_bl_28.obj",
+		"berlin3d/blocks/block_bl_29.obj",
+		"berlin3d/blocks/block_bl_30.obj",
+		"berlin3d/blocks/block_c_04.obj",
+		"berlin3d/blocks/block_s_26.obj",
+		"berlin3d/blocks/block_s_27.obj",
+		"berlin3d/blocks/block_s_28.obj",
+		"berlin3d/blocks/block_s_29.obj",
+		"berlin3d/blocks/block_s_30.obj",
+		"berlin3d/blocks/block_s_31.obj",
+		"berlin3d/blocks/block_s_32.obj",
+		"berlin3d/blocks/block_s_33.obj",
+		"berlin3d/blocks/block_s_34.obj",
+		"berlin3d/blocks/block_s_35.obj",
+		"berlin3d/blocks/block_s_36.obj",
+		"berlin3d/blocks/block_s_37.obj",
+		"berlin3d/blocks/block_s_38.obj",
+		"berlin3d/blocks/block_s_39.obj",
+		"berlin3d/blocks/block_s_40.obj",
+		"berlin3d/blocks/block_s_41.obj",
+		"berlin3d/blocks/block_s_42.obj",
+		"berlin3d/blocks/block_s_43.obj",
+		"berlin3d/blocks/block_s_44.obj",
+		"berlin3d/blocks/block_s_45.obj",
 	};
 
-	private static final IDesignEntity[] BLOCKS_RF = {
-		IScenario.block("berlin3d/blocks/block_bl_01.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_02.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_03.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_04.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_05.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_06.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_07.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_08.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_09.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_10.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_11.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_12.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_13.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_14.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_15.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_16.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_17.obj"),
-		IScenario.block("berlin3d/blocks/block_bl_18.obj"),
-		IScenario.block("berlin3d/blocks/block_br_01.obj"),
-		IScenario.block("berlin3d/blocks/block_br_02.obj"),
-		IScenario.block("berlin3d/blocks/block_br_03.obj"),
-		IScenario.block("berlin3d/blocks/block_br_04.obj"),
-		IScenario.block("berlin3d/blocks/block_c_01.obj"),
-		IScenario.block("berlin3d/blocks/block_c_02.obj"),
-		IScenario.block("berlin3d/blocks/block_c_03.obj"),
-		IScenario.block("berlin3d/blocks/block_s_01.obj"),
-		IScenario.block("berlin3d/blocks/block_s_02.obj"),
-		IScenario.block("berlin3d/blocks/block_s_03.obj"),
-		IScenario.block("berlin3d/blocks/block_s_04.obj"),
-		IScenario.block("berlin3d/blocks/block_s_05.obj"),
-		IScenario.block("berlin3d/blocks/block_s_06.obj"),
-		IScenario.block("berlin3d/blocks/block_s_07.obj"),
-		IScenario.block("berlin3d/blocks/block_s_08.obj"),
-		IScenario.block("berlin3d/blocks/block_s_09.obj"),
-		IScenario.block("berlin3d/blocks/block_s_10.obj"),
-		IScenario.block("berlin3d/blocks/block_s_11.obj"),
-		IScenario.block("berlin3d/blocks/block_s_12.obj"),
-		IScenario.block("berlin3d/blocks/block_s_13.obj"),
-		IScenario.block("berlin3d/blocks/block_s_14.obj"),
-		IScenario.block("berlin3d/blocks/block_s_15.obj"),
-		IScenario.block("berlin3d/blocks/block_s_16.obj"),
-		IScenario.block("berlin3d/blocks/block_s_17.obj"),
-		IScenario.block("berlin3d/blocks/block_s_18.obj"),
-		IScenario.block("berlin3d/blocks/block_s_19.obj"),
-		IScenario.block("berlin3d/blocks/block_s_20.obj"),
-		IScenario.block("berlin3d/blocks/block_s_21.obj"),
-		IScenario.block("berlin3d/blocks/block_s_22.obj"),
-		IScenario.block("berlin3d/blocks/block_s_23.obj"),
-		IScenario.block("berlin3d/blocks/block_s_24.obj"),
-		IScenario.block("berlin3d/blocks/block_s_25.obj"),
+	private static final String[] BLOCKS_RF = {
+		"berlin3d/blocks/block_bl_01.obj",
+		"berlin3d/blocks/block_bl_02.obj",
+		"berlin3d/blocks/block_bl_03.obj",
+		"berlin3d/blocks/block_bl_04.obj",
+		"berlin3d/blocks/block_bl_05.obj",
+		"berlin3d/blocks/block_bl_06.obj",
+		"berlin3d/blocks/block_bl_07.obj",
+		"berlin3d/blocks/block_bl_08.obj",
+		"berlin3d/blocks/block_bl_09.obj",
+		"berlin3d/blocks/block_bl_10.obj",
+		"berlin3d/blocks/block_bl_11.obj",
+		"berlin3d/blocks/block_bl_12.obj",
+		"berlin3d/blocks/block_bl_13.obj",
+		"berlin3d/blocks/block_bl_14.obj",
+		"berlin3d/blocks/block_bl_15.obj",
+		"berlin3d/blocks/block_bl_16.obj",
+		"berlin3d/blocks/block_bl_17.obj",
+		"berlin3d/blocks/block_bl_18.obj",
+		"berlin3d/blocks/block_br_01.obj",
+		"berlin3d/blocks/block_br_02.obj",
+		"berlin3d/blocks/block_br_03.obj",
+		"berlin3d/blocks/block_br_04.obj",
+		"berlin3d/blocks/block_c_01.obj",
+		"berlin3d/blocks/block_c_02.obj",
+		"berlin3d/blocks/block_c_03.obj",
+		"berlin3d/blocks/block_s_01.obj",
+		"berlin3d/blocks/block_s_02.obj",
+		"berlin3d/blocks/block_s_03.obj",
+		"berlin3d/blocks/block_s_04.obj",
+		"berlin3d/blocks/block_s_05.obj",
+		"berlin3d/blocks/block_s_06.obj",
+		"berlin3d/blocks/block_s_07.obj",
+		"berlin3d/blocks/block_s_08.obj",
+		"berlin3d/blocks/block_s_09.obj",
+		"berlin3d/blocks/block_s_10.obj",
+		"berlin3d/blocks/block_s_11.obj",
+		"berlin3d/blocks/block_s_12.obj",
+		"berlin3d/blocks/block_s_13.obj",
+		"berlin3d/blocks/block_s_14.obj",
+		"berlin3d/blocks/block_s_15.obj",
+		"berlin3d/blocks/block_s_16.obj",
+		"berlin3d/blocks/block_s_17.obj",
+		"berlin3d/blocks/block_s_18.obj",
+		"berlin3d/blocks/block_s_19.obj",
+		"berlin3d/blocks/block_s_20.obj",
+		"berlin3d/blocks/block_s_21.obj",
+		"berlin3d/blocks/block_s_22.obj",
+		"berlin3d/blocks/block_s_23.obj",
+		"berlin3d/blocks/block_s_24.obj",
+		"berlin3d/blocks/block_s_25.obj",
 	};
 	
-	private static final IDesignEntity[] BLOCKS_NOP  = {
-		IScenario.block("berlin3d/blocks/block_nop_04.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_01.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_02.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_03.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_05.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_06.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_07.obj"),
-		IScenario.block("berlin3d/blocks/block_nop_08.obj"),		
+	private static final String[] BLOCKS_NOP  = {
+		"berlin3d/blocks/block_nop_04.obj",
+		"berlin3d/blocks/block_nop_01.obj",
+		"berlin3d/blocks/block_nop_02.obj",
+		"berlin3d/blocks/block_nop_03.obj",
+		"berlin3d/blocks/block_nop_05.obj",
+		"berlin3d/blocks/block_nop_06.obj",
+		"berlin3d/blocks/block_nop_07.obj",
+		"berlin3d/blocks/block_nop_08.obj",		
 	};
 	
-	private static final IDesignEntity[] BUILDINGS_AP = {
-		IScenario.building("berlin3d/buildings/building_bd_19.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_20.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_21.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_22.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_23.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_24.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_25.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_26.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_27.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_28.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_29.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_30.obj"),
+	private static final String[] BUILDINGS_AP = {
+		"berlin3d/buildings/building_bd_19.obj",
+		"berlin3d/buildings/building_bd_20.obj",
+		"berlin3d/buildings/building_bd_21.obj",
+		"berlin3d/buildings/building_bd_22.obj",
+		"berlin3d/buildings/building_bd_23.obj",
+		"berlin3d/buildings/building_bd_24.obj",
+		"berlin3d/buildings/building_bd_25.obj",
+		"berlin3d/buildings/building_bd_26.obj",
+		"berlin3d/buildings/building_bd_27.obj",
+		"berlin3d/buildings/building_bd_28.obj",
+		"berlin3d/buildings/building_bd_29.obj",
+		"berlin3d/buildings/building_bd_30.obj",
 	};
 
-	private static final IDesignEntity[] BUILDINGS_RF = {
-		IScenario.building("berlin3d/buildings/building_bd_02.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_03.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_05.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_06.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_07.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_08.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_10.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_11.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_12.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_13.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_15.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_17.obj"),
-		IScenario.building("berlin3d/buildings/building_bd_18.obj"),
+	private static final String[] BUILDINGS_RF = {
+		"berlin3d/buildings/building_bd_02.obj",
+		"berlin3d/buildings/building_bd_03.obj",
+		"berlin3d/buildings/building_bd_05.obj",
+		"berlin3d/buildings/building_bd_06.obj",
+		"berlin3d/buildings/building_bd_07.obj",
+		"berlin3d/buildings/building_bd_08.obj",
+		"berlin3d/buildings/building_bd_10.obj",
+		"berlin3d/buildings/building_bd_11.obj",
+		"berlin3d/buildings/building_bd_12.obj",
+		"berlin3d/buildings/building_bd_13.obj",
+		"berlin3d/buildings/building_bd_15.obj",
+		"berlin3d/buildings/building_bd_17.obj",
+		"berlin3d/buildings/building_bd_18.obj",
 	};
 	
-	private static final IDesignEntity[] BUILDINGS_NOP = {
-		IScenario.building("berlin3d/buildings/building_nop_01.obj"),
-		IScenario.building("berlin3d/buildings/building_nop_02.obj"),		
+	private static final String[] BUILDINGS_NOP = {
+		"berlin3d/buildings/building_nop_01.obj",
+		"berlin3d/buildings/building_nop_02.obj",		
 	};
 	
 	private final boolean alexanderplatzOnly;
 	
+	private final ScenarioLoader loader = new ScenarioLoader();
+	
 	public BerlinScenario(boolean alexanderplatzOnly) {
 		this.alexanderplatzOnly = alexanderplatzOnly;
+		loader.addBlocks(BLOCKS_AP);
+		loader.addBuildings(BUILDINGS_AP);
+		if (!alexanderplatzOnly) {
+			loader.addBlocks(BLOCKS_RF);
+			loader.addBuildings(BUILDINGS_RF);
+		}
 	}
 	
 	@Override
@@ -213,12 +224,9 @@ public final class BerlinScenario implements IScenario {
 	public String[] getStaticBlocks() {
 		List<String> b = new ArrayList<>();
 		b.add(STATIC_BLOCKS);
-		for (IDesignEntity e : BLOCKS_NOP)
-			b.add(e.getAsset());
-		if (alexanderplatzOnly) {
-			for (IDesignEntity e : BLOCKS_RF)
-				b.add(e.getAsset());
-		}
+		Collections.addAll(b, BLOCKS_NOP);
+		if (alexanderplatzOnly)
+			Collections.addAll(b, BLOCKS_RF);
 		return b.toArray(new String[0]);
 	}
 
@@ -231,12 +239,9 @@ public final class BerlinScenario implements IScenario {
 	public String[] getStaticBuildings() {
 		List<String> b = new ArrayList<>();
 		b.add(STATIC_BUILDINGS);
-		for (IDesignEntity e : BUILDINGS_NOP)
-			b.add(e.getAsset());
-		if (alexanderplatzOnly) {
-			for (IDesignEntity e : BUILDINGS_RF)
-				b.add(e.getAsset());
-		}
+		Collections.addAll(b, BUILDINGS_NOP);
+		if (alexanderplatzOnly)
+			Collections.addAll(b, BUILDINGS_RF);
 		return b.toArray(new String[0]);
 	}
 
@@ -247,14 +252,12 @@ public final class BerlinScenario implements IScenario {
 	
 	@Override
 	public List<IDesignEntity> getEntities() {
-		List<IDesignEntity> entities = new ArrayList<>();
-		Collections.addAll(entities, BLOCKS_AP);
-		Collections.addAll(entities, BUILDINGS_AP);
-		if (!alexanderplatzOnly) {
-			Collections.addAll(entities, BLOCKS_RF);
-			Collections.addAll(entities, BUILDINGS_RF);
-		}
-		return entities;
+		return loader.load();
+	}
+
+	@Override
+	public List<IDesignEntity> getEntities(EnumSet<Type> types) {
+		return loader.load(types);
 	}
 	
 	@Override
@@ -47,4 +47,19 @@ public interface I3DConfig {
 	RGB LIGHT_DIFFUSE = RGB.GRAY50;
 	
 	double FADE_TIME = 2.0;
+	
+	// level of detail of generated content (plants, population) during fly-through
+	float LOD_TILE_SIZE = 100;
+	float LOD_NEAR_DISTANCE = 250;
+	float LOD_FAR_DISTANCE = 1000;
+	float LOD_HYSTERESIS = 20;
+	
+	// spatial tiles of static and generated meshes, culled against the view during fly-through
+	float CULL_TILE_SIZE = 250;
+	float CULL_VIEW_ASPECT = 16f / 9f;
+	
+	// cell size of the grid that indexes design entity shapes for picking
+	float PICK_CELL_SIZE = 50;
+	
+	long GENERATION_SEED = 0x4544505f53454544L; // seed of all randomized generation (plants, heights, population)
 }
@@ -32,4 +32,9 @@ package ch.fhnw.demopolis.config;
 public interface ILogConfig {
 	//String BASE_PATH = "/Users/radar/Desktop/edp_logs/";
 	String BASE_PATH = "./edp_logs/";
+	
+	boolean TRACE_STARTUP = true;
+	
+	// write the generated 3d scene as .glb after each generation (off for kiosk use, fills the disk)
+	boolean EXPORT_SCENE = false;
 }
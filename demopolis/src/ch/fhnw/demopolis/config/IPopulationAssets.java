@@ -43,6 +43,8 @@ public interface IPopulationAssets {
 	float CYCLIST_PROBABILITY = 0.1f;
 	
 	float NUM_PEOPLE = 0.005f; // number of people per square meter in open area
+	float PERSON_SPACING = 4; // minimum distance between people in open area
+	int PERSON_ATTEMPTS = 8; // candidates per person for poisson disk placement
 	
 	
 	String[] PERSONS = new String[] {
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.config;
+
+public interface IUIAssets {
+	String STATUS_PANEL = "gui/demopolis_ui_status.png";
+
+	String SPACE_ALLOCATION_PANEL = "gui/demopolis_ui_tool_space_alloc.png";
+	String STREET_PANEL = "gui/demopolis_ui_tool_street.png";
+	String BUILDING_TYPE_PANEL = "gui/demopolis_ui_tool_bd_type.png";
+	String BUILDING_HEIGHT_PANEL = "gui/demopolis_ui_tool_bd_height.png";
+	String BUILDING_LINE_PANEL = "gui/demopolis_ui_tool_bd_line.png";
+	String BUILDING_SETBACK_PANEL = "gui/demopolis_ui_tool_bd_setback.png";
+	String BUILDING_USE_PANEL = "gui/demopolis_ui_tool_bd_use.png";
+	String LANDSCAPING_PANEL = "gui/demopolis_ui_tool_landscaping.png";
+
+	// all panels end up in a single texture atlas
+	String[] PANELS = new String[] {
+		STATUS_PANEL,
+		SPACE_ALLOCATION_PANEL,
+		STREET_PANEL,
+		BUILDING_TYPE_PANEL,
+		BUILDING_HEIGHT_PANEL,
+		BUILDING_LINE_PANEL,
+		BUILDING_SETBACK_PANEL,
+		BUILDING_USE_PANEL,
+		LANDSCAPING_PANEL,
+	};
+}
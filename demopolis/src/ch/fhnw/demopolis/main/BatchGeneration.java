@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.main;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import ch.fhnw.demopolis.config.BerlinScenario;
+import ch.fhnw.demopolis.config.ILogConfig;
+import ch.fhnw.demopolis.main.HeadlessGeneration.Result;
+import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.entities.BuildingBlock;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock.OpenSpaceType;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// regenerates all logged sessions of a directory (see ScenarioWriter) headless and writes
+// one csv line of summary metrics per session. each worker owns a model, sessions are
+// streamed from the directory and at most MAX_PENDING sessions are queued at any time.
+// trees and shrubs are the counts logged in the session, green area and plants exclude
+// non-landscaped open space.
+// usage: BatchGeneration ap|all [directory] [metrics.csv] [workers]
+public class BatchGeneration {
+	private static final String PATTERN = "json*.txt";
+	private static final int MAX_PENDING = 2;
+	private static final float STOREY_HEIGHT = 3.5f;
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("usage: BatchGeneration ap|all [directory] [metrics.csv] [workers]");
+			System.exit(1);
+		}
+		boolean alexanderplatzOnly = args[0].equals("ap");
+		Path directory = Paths.get(args.length >= 2 ? args[1] : ILogConfig.BASE_PATH);
+		Path metrics = Paths.get(args.length >= 3 ? args[2] : "metrics.csv");
+		int workers = args.length >= 4 ? Integer.parseInt(args[3]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+		try {
+			run(alexanderplatzOnly, directory, metrics, workers);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	public static void run(boolean alexanderplatzOnly, Path directory, Path metrics, int workers) throws IOException, InterruptedException {
+		// one model per worker, generation within a session runs on the common pool as usual
+		BlockingQueue<Model> models = new ArrayBlockingQueue<>(workers);
+		for (int i = 0; i < workers; ++i)
+			models.add(HeadlessGeneration.load(new BerlinScenario(alexanderplatzOnly)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		Semaphore pending = new Semaphore(workers + MAX_PENDING);
+		AtomicInteger done = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		long t = System.nanoTime();
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(metrics));
+			 DirectoryStream<Path> sessions = Files.newDirectoryStream(directory, PATTERN)) {
+			out.println("session,buildings,floor_area,green_area,trees,shrubs,triangles,generation_ms,error");
+			for (Path session : sessions) {
+				pending.acquire();
+				executor.execute(() -> {
+					Model model = null;
+					String line;
+					try {
+						model = models.take();
+						line = process(model, session);
+					} catch (Exception e) {
+						failed.incrementAndGet();
+						line = session.getFileName() + ",,,,,,,," + String.valueOf(e).replace(',', ';');
+					} finally {
+						if (model != null)
+							models.add(model);
+						pending.release();
+					}
+					synchronized (out) {
+						out.println(line);
+					}
+					int n = done.incrementAndGet();
+					if (n % 100 == 0)
+						System.out.println("batch: " + n + " sessions");
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		}
+		System.out.println(String.format(Locale.ROOT, "batch: %d sessions (%d failed) in %.1fs", done.get(), failed.get(), (System.nanoTime() - t) / 1e9));
+	}
+
+	private static String process(Model model, Path session) throws IOException {
+		Result result = HeadlessGeneration.generate(model, session);
+
+		int buildings = 0;
+		double floorArea = 0;
+		for (Building b : BuildingBlock.getBuildings(model.getDesignEntities())) {
+			if (b.getPlan().isEmpty())
+				continue;
+			buildings++;
+			int storeys = Math.max(1, Math.round(b.getFinalHeight() / STOREY_HEIGHT));
+			for (Polygon p : b.getPlan())
+				floorArea += storeys * getArea(p);
+		}
+
+		double greenArea = 0;
+		for (IDesignEntity e : model.getDesignEntities()) {
+			if (!(e instanceof OpenSpaceBlock))
+				continue;
+			OpenSpaceBlock o = (OpenSpaceBlock)e;
+			if (o.getOpenSpaceType() == OpenSpaceType.NON_LANDSCAPED)
+				continue;
+			greenArea += getArea(o.getShape());
+			if (o.getOpenSpaceType() == OpenSpaceType.PLAZA) {
+				Polygon plaza = o.getShapeGeometry().getOffsetPolygon(OpenSpaceBlock.PLAZA_OFFSET);
+				if (plaza != null)
+					greenArea -= getArea(plaza);
+			}
+		}
+
+		int[] plants = getLoggedPlants(session);
+		return String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%d,%d,%d,%.1f,", session.getFileName(), buildings, floorArea, greenArea, plants[0], plants[1], result.triangles, result.getTotalTime());
+	}
+
+	// trees and shrubs as logged (regeneration clusters shrubs, so the model does not have the
+	// original positions), without non-landscaped open space, as for the green area
+	private static int[] getLoggedPlants(Path session) throws IOException {
+		int[] plants = new int[2];
+		try (Reader r = Files.newBufferedReader(session); JsonReader reader = Json.createReader(r)) {
+			for (JsonObject o : reader.readObject().getJsonArray("openspace").getValuesAs(JsonObject.class)) {
+				if (OpenSpaceType.valueOf(o.getString("type")) == OpenSpaceType.NON_LANDSCAPED)
+					continue;
+				plants[0] += o.getJsonArray("trees").size();
+				plants[1] += o.getJsonArray("shrubs").size();
+			}
+		}
+		return plants;
+	}
+
+	// area of the projection onto the xy plane
+	private static double getArea(Polygon polygon) {
+		List<Vec3> v = polygon.asList();
+		double area = 0;
+		for (int i = 0, j = v.size() - 1; i < v.size(); j = i++)
+			area += (double)v.get(j).x * v.get(i).y - (double)v.get(i).x * v.get(j).y;
+		return Math.abs(area) / 2;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.fhnw.demopolis.model.entities.BuildingBlock;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingType;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// scaling benchmark of the nearest neighbour query in BuildingBlock.setFinalBuildingHeights on
+// synthetic scenarios (square grid of point high-rise lots): the shipped kd-tree query vs. the
+// former brute force search. both variants compute the plan centers and the nearest other center.
+public class BuildingHeightBenchmark {
+	private static final int[] SIZES = { 100, 500, 1000, 5000, 10000, 50000 };
+	private static final int MAX_BRUTE_FORCE_SIZE = 10000;
+	private static final float LOT_SIZE = 40;
+	private static final float LOT_SPACING = 50;
+	private static final int RUNS = 5;
+
+	// keeps the results alive
+	private static float sink;
+
+	public static void main(String[] args) {
+		// warm up
+		List<Building> warmup = createBuildings(1000);
+		for (int i = 0; i < 3; ++i) {
+			sink += indexed(warmup);
+			sink += bruteForce(warmup);
+		}
+
+		System.out.println("buildings\tindexed ms\tbrute force ms");
+		for (int n : SIZES) {
+			List<Building> buildings = createBuildings(n);
+
+			long t = System.nanoTime();
+			for (int i = 0; i < RUNS; ++i)
+				sink += indexed(buildings);
+			double indexed = (System.nanoTime() - t) / 1e6 / RUNS;
+
+			String brute = "-";
+			if (n <= MAX_BRUTE_FORCE_SIZE) {
+				t = System.nanoTime();
+				for (int i = 0; i < RUNS; ++i)
+					sink += bruteForce(buildings);
+				brute = String.format("%.2f", (System.nanoTime() - t) / 1e6 / RUNS);
+			}
+			System.out.println(n + "\t" + String.format("%.2f", indexed) + "\t" + brute);
+		}
+		if (Float.isNaN(sink))
+			System.out.println(sink);
+	}
+
+	private static List<Building> createBuildings(int n) {
+		int side = (int)Math.ceil(Math.sqrt(n));
+		List<Building> buildings = new ArrayList<>(n);
+		for (int i = 0; i < n; ++i) {
+			float x = (i % side) * LOT_SPACING;
+			float y = (i / side) * LOT_SPACING;
+			Polygon lot = new Polygon(new Vec3(x, y, 0), new Vec3(x + LOT_SIZE, y, 0), new Vec3(x + LOT_SIZE, y + LOT_SIZE, 0), new Vec3(x, y + LOT_SIZE, 0));
+			Building building = new Building(lot, "synthetic_" + i, BuildingType.POINT);
+			// the neighbour query only considers buildings with a plan
+			if (!building.getPlan().isEmpty())
+				buildings.add(building);
+		}
+		return buildings;
+	}
+
+	// the neighbour query used by BuildingBlock.setFinalBuildingHeights
+	private static float indexed(List<Building> buildings) {
+		float sum = 0;
+		for (float d : BuildingBlock.getNearestDistances(buildings))
+			sum += d;
+		return sum;
+	}
+
+	// neighbour query of the former O(n^2) implementation, for reference
+	private static float bruteForce(List<Building> buildings) {
+		float[] centers = BuildingBlock.getCenters(buildings);
+		float sum = 0;
+		for (int i = 0; i < centers.length; i += 3) {
+			float d = Float.POSITIVE_INFINITY;
+			for (int j = 0; j < centers.length; j += 3) {
+				if (i == j)
+					continue;
+				float dx = centers[i] - centers[j];
+				float dy = centers[i + 1] - centers[j + 1];
+				float dz = centers[i + 2] - centers[j + 2];
+				d = Math.min(d, dx * dx + dy * dy + dz * dz);
+			}
+			sum += (float)Math.sqrt(d);
+		}
+		return sum;
+	}
+}
@@ -30,11 +30,15 @@
 package ch.fhnw.demopolis.main;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 
 import ch.fhnw.demopolis.config.BerlinScenario;
+import ch.fhnw.demopolis.model.BundleScenario;
 import ch.fhnw.demopolis.model.IScenario;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.ui.UI;
+import ch.fhnw.demopolis.util.StartupTracer;
+import ch.fhnw.demopolis.util.StartupTracer.Phase;
 import ch.fhnw.ether.controller.DefaultController;
 import ch.fhnw.ether.controller.IController;
 import ch.fhnw.ether.controller.event.IEventScheduler;
@@ -44,18 +48,23 @@ import ch.fhnw.ether.view.gl.DefaultView;
 import ch.fhnw.util.AutoDisposer;
 
 public class Demopolis {
+	// used by edp_cds_dump.bat: quit once the first frame is rendered, so the class list dump terminates by itself
+	private static final boolean EXIT_AFTER_FIRST_FRAME = Boolean.getBoolean("edp.exit_after_first_frame");
 	
 	public static void main(String[] args) {
 		System.out.println("Good morning, Dr. Chandra. This is Hal. I am ready for my first lesson.");
 			
 		boolean alexanderplatzOnly = false;
 		boolean fullscreen = false;
-		if (args.length == 2) {
+		String bundle = null;
+		if (args.length >= 2) {
 			if (args[0].equals("ap"))
 				alexanderplatzOnly = true;
 			if (args[1].equals("true"))
 				fullscreen = true;
 		}
+		if (args.length == 3)
+			bundle = args[2];
 		
 		try {
 			Thread t = new Thread(() -> {
@@ -70,17 +79,27 @@ public class Demopolis {
 			t.setDaemon(true);
 			t.start();
 
-			new Demopolis(alexanderplatzOnly, fullscreen);
+			new Demopolis(alexanderplatzOnly, fullscreen, bundle);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
 		}	
 	}
 
-	public Demopolis(boolean alexanderplatzOnly, boolean fullscreen) throws IOException {
-		final IScenario scenario = new BerlinScenario(alexanderplatzOnly);
-		final Model model = new Model(scenario);
-		final UI gui = new UI(model);
+	public Demopolis(boolean alexanderplatzOnly, boolean fullscreen, String bundle) throws IOException {
+		final IScenario scenario;
+		try (Phase phase = StartupTracer.begin("scenario")) {
+			// a compiled bundle replaces the built-in scenario
+			scenario = bundle != null ? new BundleScenario(Paths.get(bundle)) : new BerlinScenario(alexanderplatzOnly);
+		}
+		final Model model;
+		try (Phase phase = StartupTracer.begin("model")) {
+			model = new Model(scenario);
+		}
+		final UI gui;
+		try (Phase phase = StartupTracer.begin("ui")) {
+			gui = new UI(model);
+		}
 
 
 		final IController controller = new DefaultController() {
@@ -93,10 +112,13 @@ public class Demopolis {
 
 		controller.run(time -> {
 			//final IView view = new DefaultView(controller, 0, 10, 1920, 1080, IView.RENDER_VIEW, "Enabling DEMO:POLIS");
-			final IView view = new DefaultView(controller, 0, 10, 960, 540, IView.RENDER_VIEW, "Enabling DEMO:POLIS");	
-			controller.setScene(new DefaultScene(controller));
+			final IView view;
+			try (Phase phase = StartupTracer.begin("view")) {
+				view = new DefaultView(controller, 0, 10, 960, 540, IView.RENDER_VIEW, "Enabling DEMO:POLIS");	
+				controller.setScene(new DefaultScene(controller));
+			}
 			
-			try {
+			try (Phase p = StartupTracer.begin("enable")) {
 				gui.enable(controller);
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -105,6 +127,10 @@ public class Demopolis {
 			controller.animate(new IEventScheduler.IAnimationAction() {
 				@Override
 				public void run(double time, double interval) {
+					// first call happens when the first frame is about to be rendered
+					StartupTracer.report();
+					if (EXIT_AFTER_FIRST_FRAME)
+						System.exit(0);
 					//cameraPath.setCamera(camera, time);
 				}
 			});
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import ch.fhnw.demopolis.config.BerlinScenario;
+import ch.fhnw.demopolis.config.I3DConfig;
+import ch.fhnw.demopolis.model.BundleScenario;
+import ch.fhnw.demopolis.model.DesignReader;
+import ch.fhnw.demopolis.model.Generator;
+import ch.fhnw.demopolis.model.IScenario;
+import ch.fhnw.demopolis.model.LevelOfDetail;
+import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.SceneTiles;
+import ch.fhnw.demopolis.model.entities.BuildingBlock;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+
+// runs the full generation pipeline for a logged design (see ScenarioWriter) without
+// controller, view or GL context, e.g. for benchmarks and regression tests on machines
+// without GPU. meshes are only built into geometry buffers, nothing is rendered.
+// usage: HeadlessGeneration ap|all design.txt [runs] [bundle]
+public class HeadlessGeneration {
+	public static final class Result {
+		public final int entities;
+		public final int reused;
+		public final int meshes;
+		public final int triangles;
+		public final double applyTime;
+		public final double heightsTime;
+		public final double generateTime;
+		public final double mergeTime;
+
+		Result(int entities, int reused, int meshes, int triangles, double applyTime, double heightsTime, double generateTime, double mergeTime) {
+			this.entities = entities;
+			this.reused = reused;
+			this.meshes = meshes;
+			this.triangles = triangles;
+			this.applyTime = applyTime;
+			this.heightsTime = heightsTime;
+			this.generateTime = generateTime;
+			this.mergeTime = mergeTime;
+		}
+
+		public double getTotalTime() {
+			return applyTime + heightsTime + generateTime + mergeTime;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("entities %d (reused %d), meshes %d, triangles %d, apply %.1fms, heights %.1fms, generate %.1fms, merge %.1fms, total %.1fms",
+					entities, reused, meshes, triangles, applyTime, heightsTime, generateTime, mergeTime, getTotalTime());
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("usage: HeadlessGeneration ap|all design.txt [runs] [bundle]");
+			System.exit(1);
+		}
+		boolean alexanderplatzOnly = args[0].equals("ap");
+		Path design = Paths.get(args[1]);
+		int runs = args.length >= 3 ? Integer.parseInt(args[2]) : 1;
+		String bundle = args.length >= 4 ? args[3] : null;
+
+		try {
+			long t = System.nanoTime();
+			IScenario scenario = bundle != null ? new BundleScenario(Paths.get(bundle)) : new BerlinScenario(alexanderplatzOnly);
+			Model model = load(scenario);
+			System.out.println(String.format("load: %.1fms", (System.nanoTime() - t) / 1e6));
+
+			// the first run is cold, further runs reuse the generation cache
+			for (int i = 0; i < runs; ++i)
+				System.out.println("run " + i + ": " + generate(model, design));
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	// loads a model with all entities attached, ready for generate()
+	public static Model load(IScenario scenario) throws IOException {
+		Model model = new Model(scenario);
+		model.awaitPopulation();
+		model.awaitEntities();
+		model.attachLoadedEntities();
+		return model;
+	}
+
+	public static Result generate(Model model, Path design) throws IOException {
+		long t0 = System.nanoTime();
+		model.resetDesignEntities();
+		model.getPopulation().clear();
+		new DesignReader().read(model, design);
+
+		long t1 = System.nanoTime();
+		BuildingBlock.setFinalBuildingHeights(BuildingBlock.getBuildings(model.getDesignEntities()), model.getSeed());
+
+		long t2 = System.nanoTime();
+		SceneTiles tiles = new SceneTiles(model.getScenario().getBounds(), I3DConfig.CULL_TILE_SIZE);
+		LevelOfDetail detail = new LevelOfDetail();
+		int reused = Generator.generate(model, model.getDesignEntities(), tiles, detail);
+
+		long t3 = System.nanoTime();
+		tiles.build();
+		detail.build();
+		long t4 = System.nanoTime();
+
+		List<IMesh> meshes = tiles.getMeshes();
+		meshes.addAll(detail.getMeshes(LevelOfDetail.Level.NEAR));
+		// points and lines (e.g. outlines) are not counted
+		int triangles = 0;
+		for (IMesh mesh : meshes) {
+			if (mesh.getType() == Primitive.TRIANGLES)
+				triangles += mesh.getTransformedPositionData().length / 9;
+		}
+
+		return new Result(model.getDesignEntities().size(), reused, meshes.size(), triangles, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, (t4 - t3) / 1e6);
+	}
+}
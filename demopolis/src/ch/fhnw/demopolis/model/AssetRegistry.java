@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// one shared, immutable mesh data instance per asset path. entries are softly
+// referenced, so unused assets may be dropped under memory pressure.
+public final class AssetRegistry {
+	private static final class Entry {
+		SoftReference<MeshData> data = new SoftReference<>(null);
+	}
+
+	private static final ConcurrentMap<String, Entry> MESHES = new ConcurrentHashMap<>();
+
+	public static MeshData getMesh(String asset) throws IOException {
+		Entry entry = MESHES.computeIfAbsent(asset, a -> new Entry());
+		synchronized (entry) {
+			MeshData data = entry.data.get();
+			if (data == null) {
+				data = MeshCache.load(asset);
+				entry.data = new SoftReference<>(data);
+			}
+			return data;
+		}
+	}
+
+	// makes preloaded data available under the given asset path, e.g. from a scenario bundle
+	public static void register(String asset, MeshData data) {
+		Entry entry = MESHES.computeIfAbsent(asset, a -> new Entry());
+		synchronized (entry) {
+			entry.data = new SoftReference<>(data);
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
+import ch.fhnw.demopolis.util.BufferUtilities;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.BoundingBox;
+
+// scenario loaded from a single binary bundle written by compile(). the bundle holds
+// an index of sections followed by the scenario info, camera paths, asset lists and
+// the preprocessed mesh data of all referenced assets.
+public final class BundleScenario implements IScenario {
+	private static final int MAGIC = 0x42504445;
+	private static final int VERSION = 1;
+
+	private static final int SECTION_INFO = 0;
+	private static final int SECTION_INTRO_CAMERA = 1;
+	private static final int SECTION_LOOP_CAMERA = 2;
+	private static final int SECTION_STATIC = 3;
+	private static final int SECTION_ENTITIES = 4;
+	private static final int SECTION_ASSETS = 5;
+	private static final int NUM_SECTIONS = 6;
+
+	private static final int NUM_STATIC_LAYERS = 6;
+
+	private static final int KIND_BLOCK = 0;
+	private static final int KIND_BUILDING = 1;
+
+	private final String name;
+	private final BoundingBox bounds = new BoundingBox();
+	private final List<Vec3> introCameraVertices;
+	private final List<Vec3> loopCameraVertices;
+	private final String[][] staticLayers = new String[NUM_STATIC_LAYERS][];
+	private final String[] entityAssets;
+	private final int[] entityKinds;
+	private final Map<String, MeshData> assets = new HashMap<>();
+
+	private final ScenarioLoader loader = new ScenarioLoader();
+
+	public BundleScenario(Path path) throws IOException {
+		// read the whole bundle in one go
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = ByteBuffer.allocate((int)channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+		}
+
+		if (buffer.getInt() != MAGIC)
+			throw new IOException("not a scenario bundle: " + path);
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("unsupported scenario bundle version " + version + ": " + path);
+
+		int numSections = buffer.getInt();
+		int[] offsets = new int[NUM_SECTIONS];
+		int[] lengths = new int[NUM_SECTIONS];
+		Arrays.fill(offsets, -1);
+		for (int i = 0; i < numSections; ++i) {
+			int id = buffer.getInt();
+			int offset = buffer.getInt();
+			int length = buffer.getInt();
+			if (id >= 0 && id < NUM_SECTIONS) {
+				offsets[id] = offset;
+				lengths[id] = length;
+			}
+		}
+		for (int i = 0; i < NUM_SECTIONS; ++i) {
+			if (offsets[i] < 0)
+				throw new IOException("missing section " + i + " in scenario bundle: " + path);
+		}
+
+		ByteBuffer section = getSection(buffer, offsets[SECTION_INFO], lengths[SECTION_INFO]);
+		name = BufferUtilities.getString(section);
+		bounds.add(new Vec3(section.getFloat(), section.getFloat(), section.getFloat()));
+		bounds.add(new Vec3(section.getFloat(), section.getFloat(), section.getFloat()));
+
+		introCameraVertices = getVertices(getSection(buffer, offsets[SECTION_INTRO_CAMERA], lengths[SECTION_INTRO_CAMERA]));
+		loopCameraVertices = getVertices(getSection(buffer, offsets[SECTION_LOOP_CAMERA], lengths[SECTION_LOOP_CAMERA]));
+
+		section = getSection(buffer, offsets[SECTION_STATIC], lengths[SECTION_STATIC]);
+		for (int i = 0; i < NUM_STATIC_LAYERS; ++i) {
+			staticLayers[i] = new String[section.getInt()];
+			for (int j = 0; j < staticLayers[i].length; ++j)
+				staticLayers[i][j] = BufferUtilities.getString(section);
+		}
+
+		section = getSection(buffer, offsets[SECTION_ENTITIES], lengths[SECTION_ENTITIES]);
+		int numEntities = section.getInt();
+		entityAssets = new String[numEntities];
+		entityKinds = new int[numEntities];
+		for (int i = 0; i < numEntities; ++i) {
+			entityKinds[i] = section.getInt();
+			entityAssets[i] = BufferUtilities.getString(section);
+			if (entityKinds[i] == KIND_BUILDING)
+				loader.addBuildings(entityAssets[i]);
+			else
+				loader.addBlocks(entityAssets[i]);
+		}
+
+		// make the preprocessed assets available, the scenario keeps them alive
+		section = getSection(buffer, offsets[SECTION_ASSETS], lengths[SECTION_ASSETS]);
+		int numAssets = section.getInt();
+		for (int i = 0; i < numAssets; ++i) {
+			String asset = BufferUtilities.getString(section);
+			MeshData data = MeshData.read(section);
+			assets.put(asset, data);
+			AssetRegistry.register(asset, data);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String[] getStaticGround() {
+		return staticLayers[0].clone();
+	}
+
+	@Override
+	public String[] getStaticWater() {
+		return staticLayers[1].clone();
+	}
+
+	@Override
+	public String[] getStaticBlocks() {
+		return staticLayers[2].clone();
+	}
+
+	@Override
+	public String[] getStaticGreen() {
+		return staticLayers[3].clone();
+	}
+
+	@Override
+	public String[] getStaticBuildings() {
+		return staticLayers[4].clone();
+	}
+
+	@Override
+	public String[] getStaticTrain() {
+		return staticLayers[5].clone();
+	}
+
+	@Override
+	public List<IDesignEntity> getEntities() {
+		return loader.load();
+	}
+
+	@Override
+	public List<IDesignEntity> getEntities(EnumSet<Type> types) {
+		return loader.load(types);
+	}
+
+	@Override
+	public List<Vec3> getIntroCameraVertices() {
+		return introCameraVertices;
+	}
+
+	@Override
+	public List<Vec3> getLoopCameraVertices() {
+		return loopCameraVertices;
+	}
+
+	@Override
+	public BoundingBox getBounds() {
+		BoundingBox b = new BoundingBox();
+		b.add(bounds);
+		return b;
+	}
+
+	public static void compile(IScenario scenario, Path path) throws IOException {
+		String[][] staticLayers = {
+			scenario.getStaticGround(),
+			scenario.getStaticWater(),
+			scenario.getStaticBlocks(),
+			scenario.getStaticGreen(),
+			scenario.getStaticBuildings(),
+			scenario.getStaticTrain(),
+		};
+		List<IDesignEntity> entities = scenario.getEntities();
+
+		Map<String, MeshData> assets = new LinkedHashMap<>();
+		for (String[] layer : staticLayers) {
+			for (String asset : layer)
+				assets.put(asset, AssetRegistry.getMesh(asset));
+		}
+		for (IDesignEntity entity : entities) {
+			MeshData data = AssetRegistry.getMesh(entity.getAsset());
+			// precompute outline triangulations so they are stored in the bundle
+			for (int i = 0; i < data.getNumOutlines(); ++i)
+				data.getTriangulation(i);
+			assets.put(entity.getAsset(), data);
+		}
+
+		ByteBuffer[] sections = new ByteBuffer[NUM_SECTIONS];
+
+		BoundingBox bounds = scenario.getBounds();
+		sections[SECTION_INFO] = allocate(BufferUtilities.getSize(scenario.getName()) + 24);
+		BufferUtilities.putString(sections[SECTION_INFO], scenario.getName());
+		sections[SECTION_INFO].putFloat(bounds.getMinX()).putFloat(bounds.getMinY()).putFloat(bounds.getMinZ());
+		sections[SECTION_INFO].putFloat(bounds.getMaxX()).putFloat(bounds.getMaxY()).putFloat(bounds.getMaxZ());
+
+		sections[SECTION_INTRO_CAMERA] = putVertices(scenario.getIntroCameraVertices());
+		sections[SECTION_LOOP_CAMERA] = putVertices(scenario.getLoopCameraVertices());
+
+		int size = 0;
+		for (String[] layer : staticLayers) {
+			size += 4;
+			for (String asset : layer)
+				size += BufferUtilities.getSize(asset);
+		}
+		sections[SECTION_STATIC] = allocate(size);
+		for (String[] layer : staticLayers) {
+			sections[SECTION_STATIC].putInt(layer.length);
+			for (String asset : layer)
+				BufferUtilities.putString(sections[SECTION_STATIC], asset);
+		}
+
+		size = 4;
+		for (IDesignEntity entity : entities)
+			size += 4 + BufferUtilities.getSize(entity.getAsset());
+		sections[SECTION_ENTITIES] = allocate(size);
+		sections[SECTION_ENTITIES].putInt(entities.size());
+		for (IDesignEntity entity : entities) {
+			sections[SECTION_ENTITIES].putInt(entity.getType() == Type.BUILDING ? KIND_BUILDING : KIND_BLOCK);
+			BufferUtilities.putString(sections[SECTION_ENTITIES], entity.getAsset());
+		}
+
+		size = 4;
+		for (Map.Entry<String, MeshData> e : assets.entrySet())
+			size += BufferUtilities.getSize(e.getKey()) + e.getValue().getSize();
+		sections[SECTION_ASSETS] = allocate(size);
+		sections[SECTION_ASSETS].putInt(assets.size());
+		for (Map.Entry<String, MeshData> e : assets.entrySet()) {
+			BufferUtilities.putString(sections[SECTION_ASSETS], e.getKey());
+			e.getValue().write(sections[SECTION_ASSETS]);
+		}
+
+		ByteBuffer header = allocate(12 + NUM_SECTIONS * 12);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(NUM_SECTIONS);
+		int offset = header.capacity();
+		for (int i = 0; i < NUM_SECTIONS; ++i) {
+			sections[i].flip();
+			header.putInt(i);
+			header.putInt(offset);
+			header.putInt(sections[i].remaining());
+			offset += sections[i].remaining();
+		}
+		header.flip();
+
+		Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			while (header.hasRemaining())
+				channel.write(header);
+			for (ByteBuffer section : sections) {
+				while (section.hasRemaining())
+					channel.write(section);
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer getSection(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer section = buffer.duplicate();
+		section.position(offset);
+		section.limit(offset + length);
+		return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static List<Vec3> getVertices(ByteBuffer buffer) {
+		int n = buffer.getInt();
+		List<Vec3> vertices = new ArrayList<>(n);
+		for (int i = 0; i < n; ++i)
+			vertices.add(new Vec3(buffer.getFloat(), buffer.getFloat(), buffer.getFloat()));
+		return Collections.unmodifiableList(vertices);
+	}
+
+	private static ByteBuffer putVertices(List<Vec3> vertices) {
+		ByteBuffer buffer = allocate(4 + vertices.size() * 12);
+		buffer.putInt(vertices.size());
+		for (Vec3 v : vertices)
+			buffer.putFloat(v.x).putFloat(v.y).putFloat(v.z);
+		return buffer;
+	}
+}
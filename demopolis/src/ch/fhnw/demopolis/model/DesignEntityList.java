@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+
+// design entity list that counts its modifications, so derived data (e.g. the picking
+// index) can be rebuilt lazily when tools replace, remove or add entities
+public final class DesignEntityList extends ArrayList<IDesignEntity> {
+	private static final long serialVersionUID = 1L;
+
+	private int version;
+
+	public int getVersion() {
+		return version;
+	}
+
+	@Override
+	public boolean add(IDesignEntity e) {
+		version++;
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, IDesignEntity e) {
+		version++;
+		super.add(index, e);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends IDesignEntity> c) {
+		version++;
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends IDesignEntity> c) {
+		version++;
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public IDesignEntity set(int index, IDesignEntity e) {
+		version++;
+		return super.set(index, e);
+	}
+
+	@Override
+	public IDesignEntity remove(int index) {
+		version++;
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		version++;
+		return super.remove(o);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		version++;
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		version++;
+		return super.retainAll(c);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super IDesignEntity> filter) {
+		version++;
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<IDesignEntity> operator) {
+		version++;
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public void sort(Comparator<? super IDesignEntity> c) {
+		version++;
+		super.sort(c);
+	}
+
+	@Override
+	public void clear() {
+		version++;
+		super.clear();
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		version++;
+		super.removeRange(fromIndex, toIndex);
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import ch.fhnw.demopolis.model.entities.Block;
+import ch.fhnw.demopolis.model.entities.Block.BlockType;
+import ch.fhnw.demopolis.model.entities.BuildingBlock;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingHeight;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingLine;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingSetback;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingType;
+import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingUse;
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock.OpenSpaceType;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock.PlantGroup;
+import ch.fhnw.demopolis.model.entities.Street;
+import ch.fhnw.demopolis.model.entities.Street.StreetType;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.GeometryUtilities;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// counterpart of ScenarioWriter: replays a logged design on the scenario entities of a model.
+// the log contains lots and plant positions rather than design gestures, so buildings are
+// restored from their lots, height classes from the final heights, and plant groups from
+// the generated plant positions.
+public class DesignReader {
+	private static final class Lot {
+		final Polygon polygon;
+		final JsonObject json;
+
+		Lot(Polygon polygon, JsonObject json) {
+			this.polygon = polygon;
+			this.json = json;
+		}
+	}
+
+	public DesignReader() {
+	}
+
+	// replaces the design entities of the model. call on unmodified scenario entities, with
+	// all entities loaded (see Model.resetDesignEntities and Model.attachLoadedEntities).
+	public void read(Model model, Path path) throws IOException {
+		JsonObject json;
+		try (Reader r = Files.newBufferedReader(path); JsonReader reader = Json.createReader(r)) {
+			json = reader.readObject();
+		}
+
+		String scenario = json.getString("scenario", null);
+		if (!model.getScenario().getName().equals(scenario))
+			throw new IllegalArgumentException("design " + path + " is for scenario " + scenario + ", not " + model.getScenario().getName());
+
+		Map<Integer, List<JsonObject>> streets = byId(json.getJsonArray("streets"));
+		Map<Integer, List<JsonObject>> openSpaces = byId(json.getJsonArray("openspace"));
+		Set<Integer> existing = byId(json.getJsonArray("existing_blocks")).keySet();
+		List<Lot> lots = new ArrayList<>();
+		for (JsonObject b : json.getJsonArray("buildings").getValuesAs(JsonObject.class))
+			lots.add(new Lot(readPolygon(b.getJsonArray("lot")), b));
+
+		// same conversions as the design tools, in tool order
+		List<IDesignEntity> entities = new ArrayList<>();
+		for (IDesignEntity e : model.getDesignEntities()) {
+			if (e.getType() == Type.STREET) {
+				Street street = new Street(e);
+				for (JsonObject s : get(streets, e.getId()))
+					street.setStreetType(StreetType.valueOf(s.getString("type")));
+				entities.add(street);
+				continue;
+			}
+			if (e.getType() != Type.BLOCK) {
+				entities.add(e);
+				continue;
+			}
+
+			Block block = new Block(e);
+			if (existing.contains(e.getId())) {
+				entities.add(block);
+				continue;
+			}
+
+			List<Building> buildings = new ArrayList<>();
+			for (Lot lot : lots) {
+				if (contains(block.getShape(), lot.polygon))
+					buildings.add(readBuilding(lot));
+			}
+			if (!buildings.isEmpty()) {
+				// built space, empty lots of the block became open space of their own
+				block.setBlockType(BlockType.BUILT_SPACE);
+				BuildingBlock b = new BuildingBlock(block);
+				b.setBuildings(buildings);
+				entities.add(b);
+				for (JsonObject o : get(openSpaces, e.getId())) {
+					Polygon lot = readPolygon(o.getJsonArray("polygon"));
+					if (contains(block.getShape(), lot))
+						entities.add(readOpenSpace(new Block(b, new Building(lot, e.getAsset(), BuildingType.NO_BUILDING)), o));
+				}
+				continue;
+			}
+
+			List<JsonObject> o = get(openSpaces, e.getId());
+			if (!o.isEmpty()) {
+				block.setBlockType(BlockType.OPEN_SPACE);
+				entities.add(readOpenSpace(block, o.get(0)));
+				continue;
+			}
+			entities.add(block);
+		}
+		model.setDesignEntities(entities);
+	}
+
+	private static OpenSpaceBlock readOpenSpace(Block block, JsonObject json) {
+		OpenSpaceBlock b = new OpenSpaceBlock(block);
+		b.setOpenSpaceType(OpenSpaceType.valueOf(json.getString("type")));
+		for (Vec3 p : groupShrubs(readVectors(json.getJsonArray("shrubs"))))
+			b.addShrubs(new PlantGroup(p, OpenSpaceBlock.SHRUB_RADIUS, true));
+		for (Vec3 p : readVectors(json.getJsonArray("trees")))
+			b.addTrees(new PlantGroup(p, OpenSpaceBlock.TREE_MAX_DIAMETER / 2, false));
+		return b;
+	}
+
+	private static boolean contains(Polygon outer, Polygon inner) {
+		Vec3 c = inner.getCenter();
+		return GeometryUtilities.testPointInPolygon2D(c.x, c.y, outer);
+	}
+
+	private static Building readBuilding(Lot lot) {
+		JsonObject json = lot.json;
+		BuildingType type = BuildingType.valueOf(json.getString("type"));
+		Building building = new Building(lot.polygon, json.getString("id"), type);
+		building.setHeight(getHeight(type, (float)json.getJsonNumber("height").doubleValue()));
+		building.setLine(BuildingLine.valueOf(json.getString("line")));
+		building.setSetback(BuildingSetback.valueOf(json.getString("setback")));
+		building.setUse(BuildingUse.valueOf(json.getString("use")));
+		return building;
+	}
+
+	// smallest height class that can produce the logged final height
+	private static BuildingHeight getHeight(BuildingType type, float height) {
+		for (BuildingHeight h : BuildingHeight.values()) {
+			if (h.maxHeight >= height - BuildingBlock.HEIGHT_VARIATION || h == type.maxHeight)
+				return h;
+		}
+		return type.maxHeight;
+	}
+
+	// shrubs were generated around group centers, one group per cluster of positions
+	private static List<Vec3> groupShrubs(List<Vec3> shrubs) {
+		List<Vec3> groups = new ArrayList<>();
+		shrub:
+		for (Vec3 p : shrubs) {
+			for (Vec3 g : groups) {
+				if (g.distance(p) < OpenSpaceBlock.SHRUB_RADIUS)
+					continue shrub;
+			}
+			groups.add(p);
+		}
+		return groups;
+	}
+
+	private static Map<Integer, List<JsonObject>> byId(JsonArray array) {
+		Map<Integer, List<JsonObject>> map = new HashMap<>();
+		if (array != null) {
+			for (JsonObject o : array.getValuesAs(JsonObject.class))
+				map.computeIfAbsent(o.getInt("id"), k -> new ArrayList<>()).add(o);
+		}
+		return map;
+	}
+
+	private static List<JsonObject> get(Map<Integer, List<JsonObject>> map, int id) {
+		return map.getOrDefault(id, Collections.emptyList());
+	}
+
+	private static Polygon readPolygon(JsonArray array) {
+		return new Polygon(readVectors(array));
+	}
+
+	private static List<Vec3> readVectors(JsonArray array) {
+		List<Vec3> vectors = new ArrayList<>();
+		if (array != null) {
+			for (JsonObject v : array.getValuesAs(JsonObject.class))
+				vectors.add(new Vec3(v.getJsonNumber("x").doubleValue(), v.getJsonNumber("y").doubleValue(), v.getJsonNumber("z").doubleValue()));
+		}
+		return vectors;
+	}
+}
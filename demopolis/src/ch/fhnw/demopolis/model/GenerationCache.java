@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// results of the last generation pass, keyed by entity fingerprint
+public final class GenerationCache {
+	private Map<Long, GenerationContext> contexts = new HashMap<>();
+
+	public synchronized GenerationContext get(long fingerprint) {
+		return contexts.get(fingerprint);
+	}
+
+	// replaces the cache content with the given pass, returns the number of reused results
+	public synchronized int update(List<GenerationContext> pass) {
+		Map<Long, GenerationContext> next = new HashMap<>();
+		int reused = 0;
+		for (GenerationContext context : pass) {
+			if (contexts.get(context.getFingerprint()) == context)
+				reused++;
+			next.put(context.getFingerprint(), context);
+		}
+		contexts = next;
+		return reused;
+	}
+
+	// adds results of a speculative pass
+	public synchronized void add(List<GenerationContext> pass) {
+		for (GenerationContext context : pass)
+			contexts.put(context.getFingerprint(), context);
+	}
+
+	public synchronized void clear() {
+		contexts.clear();
+	}
+}
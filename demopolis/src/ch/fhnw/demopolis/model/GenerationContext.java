@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import ch.fhnw.demopolis.model.entities.ShapeGeometry;
+import ch.fhnw.demopolis.util.Fingerprint;
+import ch.fhnw.demopolis.util.SeededRandom;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// collects the output of generating a single entity. contexts are filled in parallel
+// and only applied to the (not thread-safe) population afterwards, in entity order.
+public final class GenerationContext {
+	private static final class Lane {
+		final Polygon shape;
+		final EnumSet<Population.Type> types;
+		
+		Lane(Polygon shape, EnumSet<Population.Type> types) {
+			this.shape = shape;
+			this.types = types;
+		}
+	}
+	
+	private static final class Detail {
+		final float x;
+		final float y;
+		final List<IMesh> near;
+		final List<IMesh> far;
+		
+		Detail(float x, float y, List<IMesh> near, List<IMesh> far) {
+			this.x = x;
+			this.y = y;
+			this.near = near;
+			this.far = far;
+		}
+	}
+	
+	private static final class Place {
+		final ShapeGeometry area;
+		final List<Vec3> occlusion;
+		
+		Place(ShapeGeometry area, List<Vec3> occlusion) {
+			this.area = area;
+			this.occlusion = occlusion;
+		}
+	}
+
+	private final Model model;
+	private final long fingerprint;
+	private final List<Lane> lanes = new ArrayList<>();
+	private final List<Place> places = new ArrayList<>();
+	private final List<Detail> details = new ArrayList<>();
+	private List<IMesh> meshes = Collections.emptyList();
+	private Object state;
+	private SeededRandom random;
+
+	public GenerationContext(Model model, long fingerprint) {
+		this.model = model;
+		this.fingerprint = fingerprint;
+	}
+	
+	public Model getModel() {
+		return model;
+	}
+	
+	public Materials getMaterials() {
+		return model.getMaterials();
+	}
+	
+	public long getFingerprint() {
+		return fingerprint;
+	}
+	
+	// random source of this entity, seeded by the model seed and the entity fingerprint
+	// (which includes the entity id), so unchanged entities generate identical output
+	public SeededRandom getRandom() {
+		if (random == null)
+			random = new SeededRandom(new Fingerprint().add(model.getSeed()).add(fingerprint).get());
+		return random;
+	}
+	
+	// entity specific generation results that need to be restored when the context is reused
+	public Object getState() {
+		return state;
+	}
+	
+	public void setState(Object state) {
+		this.state = state;
+	}
+	
+	public void addLane(Polygon shape, EnumSet<Population.Type> types) {
+		lanes.add(new Lane(shape, types));
+	}
+	
+	public void addPlace(ShapeGeometry area, List<Vec3> occlusion) {
+		places.add(new Place(area, occlusion));
+	}
+	
+	// adds content that is subject to level of detail, located at (x, y)
+	public void addDetail(float x, float y, List<IMesh> near, List<IMesh> far) {
+		details.add(new Detail(x, y, near, far));
+	}
+	
+	public List<IMesh> getMeshes() {
+		return meshes;
+	}
+	
+	void setMeshes(List<IMesh> meshes) {
+		this.meshes = meshes;
+	}
+	
+	void applyTo(LevelOfDetail detail) {
+		details.forEach(d -> detail.add(d.x, d.y, d.near, d.far));
+	}
+	
+	void applyTo(Population population) {
+		lanes.forEach(lane -> population.addLane(lane.shape, lane.types));
+		places.forEach(place -> population.addPlace(place.area, place.occlusion));
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+
+// generates the final meshes of all entities on the fork-join pool. results
+// (meshes, level of detail content and population lanes / places) are streamed to the
+// scene tiles, the level of detail tiles and the population in entity order. entities
+// whose fingerprint did not change since the last pass reuse their previous results.
+public final class Generator {
+	private Generator() {
+	}
+
+	// returns the number of entities whose results were reused
+	public static int generate(Model model, List<IDesignEntity> entities, SceneTiles tiles, LevelOfDetail detail) {
+		GenerationCache cache = model.getGenerationCache();
+		List<GenerationContext> contexts = generateContexts(model, entities, () -> false);
+		int reused = cache.update(contexts);
+		System.out.println("generation: reused " + reused + " of " + contexts.size() + " entities");
+
+		for (GenerationContext context : contexts) {
+			tiles.addAll(context.getMeshes());
+			context.applyTo(detail);
+			context.applyTo(model.getPopulation());
+		}
+		return reused;
+	}
+
+	// generates (or reuses) the contexts of the given entities without applying them
+	// to the population. if cancelled, the returned list contains nulls.
+	static List<GenerationContext> generateContexts(Model model, List<IDesignEntity> entities, BooleanSupplier cancelled) {
+		GenerationCache cache = model.getGenerationCache();
+		return entities.parallelStream().map(e -> {
+			if (cancelled.getAsBoolean())
+				return null;
+			long fingerprint = e.getFingerprint();
+			GenerationContext context = cache.get(fingerprint);
+			if (context != null) {
+				e.restore(context);
+				return context;
+			}
+			context = new GenerationContext(model, fingerprint);
+			context.setMeshes(e.generate(context));
+			return context;
+		}).collect(Collectors.toList());
+	}
+}
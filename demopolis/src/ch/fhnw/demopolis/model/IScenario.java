@@ -30,6 +30,7 @@
 package ch.fhnw.demopolis.model;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
 
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
@@ -42,25 +43,26 @@ import ch.fhnw.util.math.geometry.BoundingBox;
 public interface IScenario {
 	static IDesignEntity block(String asset) {
 		try {
-			Type type;
+			Type type = blockType(asset);
 			int id = id(asset);
-			if (asset.contains("block_bl") || asset.contains("block_nop")) {
-				type = Type.BLOCK;
-			} else if (asset.contains("block_s")) {
-				type = Type.STREET;
-			} else if (asset.contains("block_c")) {
-				type = Type.CROSSING;
-			} else if (asset.contains("block_br")) {
-				type = Type.BRIDGE;
-			} else {
-				throw new IllegalArgumentException("unknown block asset type: " + asset);
-			}
 			return new StaticShape(type, asset, id);
 		} catch (IOException e) {
 			throw new IllegalArgumentException("cant load asset: " + asset);
 		}
 	}
 
+	static Type blockType(String asset) {
+		if (asset.contains("block_bl") || asset.contains("block_nop"))
+			return Type.BLOCK;
+		if (asset.contains("block_s"))
+			return Type.STREET;
+		if (asset.contains("block_c"))
+			return Type.CROSSING;
+		if (asset.contains("block_br"))
+			return Type.BRIDGE;
+		throw new IllegalArgumentException("unknown block asset type: " + asset);
+	}
+
 	static IDesignEntity building(String asset) {
 		try {
 			int id = id(asset);
@@ -89,6 +91,8 @@ public interface IScenario {
 	String[] getStaticTrain();
 
 	List<IDesignEntity> getEntities();
+
+	List<IDesignEntity> getEntities(EnumSet<Type> types);
 	
 	List<Vec3> getIntroCameraVertices();
 	
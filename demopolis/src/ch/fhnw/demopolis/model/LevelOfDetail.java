@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.fhnw.demopolis.config.I3DConfig;
+import ch.fhnw.demopolis.util.ViewCone;
+import ch.fhnw.ether.scene.IScene;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.BoundingBox;
+
+// distance based level of detail for generated content. content is binned into square
+// tiles with a near (full detail) and a far (simplified) version. each frame, the level
+// of every tile is selected from its distance to the camera, with hysteresis so tiles
+// don't flicker at the thresholds. beyond the far distance or outside the view, tiles
+// are culled.
+public final class LevelOfDetail {
+	public enum Level {
+		NEAR,
+		FAR,
+		CULLED
+	}
+
+	private static final class Tile {
+		final float x;
+		final float y;
+		final SceneBuilder nearBuilder = new SceneBuilder();
+		final SceneBuilder farBuilder = new SceneBuilder();
+		List<IMesh> near = Collections.emptyList();
+		List<IMesh> far = Collections.emptyList();
+		BoundingBox bounds;
+		Level level = Level.CULLED;
+		Level shown = Level.CULLED;
+
+		Tile(float x, float y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		List<IMesh> getMeshes(Level level) {
+			switch (level) {
+			case NEAR:
+				return near;
+			case FAR:
+				return far;
+			default:
+				return Collections.emptyList();
+			}
+		}
+	}
+
+	private final Map<Long, Tile> tiles = new LinkedHashMap<>();
+
+	// returns the builder of the tile containing (x, y) for the given level
+	public SceneBuilder getBuilder(float x, float y, Level level) {
+		Tile tile = getTile(x, y);
+		switch (level) {
+		case NEAR:
+			return tile.nearBuilder;
+		case FAR:
+			return tile.farBuilder;
+		default:
+			throw new IllegalArgumentException("no builder for level " + level);
+		}
+	}
+
+	public void add(float x, float y, List<IMesh> near, List<IMesh> far) {
+		Tile tile = getTile(x, y);
+		tile.nearBuilder.addAll(near);
+		tile.farBuilder.addAll(far);
+	}
+
+	public void build() {
+		int n = 0;
+		for (Tile tile : tiles.values()) {
+			tile.near = tile.nearBuilder.build();
+			tile.far = tile.farBuilder.build();
+			tile.bounds = new BoundingBox();
+			tile.near.forEach(m -> tile.bounds.add(m.getBounds()));
+			tile.far.forEach(m -> tile.bounds.add(m.getBounds()));
+			n += tile.near.size() + tile.far.size();
+		}
+		System.out.println("level of detail: " + tiles.size() + " tiles, " + n + " meshes");
+	}
+
+	// all merged meshes of a level (after build), regardless of visibility
+	public List<IMesh> getMeshes(Level level) {
+		List<IMesh> meshes = new ArrayList<>();
+		for (Tile tile : tiles.values())
+			meshes.addAll(tile.getMeshes(level));
+		return meshes;
+	}
+
+	// shows all tiles at the given level, regardless of the camera
+	public void show(IScene scene, Level level) {
+		List<IMesh> removed = new ArrayList<>();
+		List<IMesh> added = new ArrayList<>();
+		for (Tile tile : tiles.values()) {
+			tile.level = level;
+			show(tile, level, removed, added);
+		}
+		apply(scene, removed, added);
+	}
+
+	public void update(IScene scene, ViewCone cone) {
+		Vec3 camera = cone.getPosition();
+		List<IMesh> removed = new ArrayList<>();
+		List<IMesh> added = new ArrayList<>();
+		for (Tile tile : tiles.values()) {
+			float dx = tile.x - camera.x;
+			float dy = tile.y - camera.y;
+			float d = (float)Math.sqrt(dx * dx + dy * dy + camera.z * camera.z);
+			// the distance level is tracked even while a tile is outside the view
+			tile.level = select(d, tile.level);
+			show(tile, cone.intersects(tile.bounds) ? tile.level : Level.CULLED, removed, added);
+		}
+		apply(scene, removed, added);
+	}
+
+	public void removeFromScene(IScene scene) {
+		show(scene, Level.CULLED);
+		tiles.clear();
+	}
+
+	private Tile getTile(float x, float y) {
+		int i = (int)Math.floor(x / I3DConfig.LOD_TILE_SIZE);
+		int j = (int)Math.floor(y / I3DConfig.LOD_TILE_SIZE);
+		long key = ((long)i << 32) | (j & 0xffffffffL);
+		return tiles.computeIfAbsent(key, k -> new Tile((i + 0.5f) * I3DConfig.LOD_TILE_SIZE, (j + 0.5f) * I3DConfig.LOD_TILE_SIZE));
+	}
+
+	private static Level select(float distance, Level current) {
+		// a tile has to move past a threshold by the hysteresis before it changes level
+		float h = I3DConfig.LOD_HYSTERESIS;
+		float near = current == Level.NEAR ? I3DConfig.LOD_NEAR_DISTANCE + h : I3DConfig.LOD_NEAR_DISTANCE - h;
+		float far = current == Level.CULLED ? I3DConfig.LOD_FAR_DISTANCE - h : I3DConfig.LOD_FAR_DISTANCE + h;
+		if (distance < near)
+			return Level.NEAR;
+		if (distance < far)
+			return Level.FAR;
+		return Level.CULLED;
+	}
+
+	private static void show(Tile tile, Level level, List<IMesh> removed, List<IMesh> added) {
+		if (tile.shown == level)
+			return;
+		removed.addAll(tile.getMeshes(tile.shown));
+		added.addAll(tile.getMeshes(level));
+		tile.shown = level;
+	}
+
+	private static void apply(IScene scene, List<IMesh> removed, List<IMesh> added) {
+		if (!removed.isEmpty())
+			scene.remove3DObjects(removed);
+		if (!added.isEmpty())
+			scene.add3DObjects(added);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import assets.Asset;
+import ch.fhnw.demopolis.config.ICacheConfig;
+import ch.fhnw.demopolis.render.PolisMaterial;
+import ch.fhnw.ether.formats.obj.ObjReader;
+import ch.fhnw.ether.scene.mesh.material.IMaterial;
+import ch.fhnw.util.color.RGB;
+
+// pre-baked little-endian binary copies of obj assets, rebuilt when the source changes
+public final class MeshCache {
+	private static final int MAGIC = 0x43504445;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+
+	private static final IMaterial MATERIAL = new PolisMaterial(RGB.WHITE);
+
+	public static MeshData load(String asset) throws IOException {
+		URL url = Asset.get(asset);
+		if (!ICacheConfig.USE_MESH_CACHE)
+			return parse(url);
+
+		URLConnection connection = url.openConnection();
+		long length = connection.getContentLengthLong();
+		long modified = connection.getLastModified();
+		connection.getInputStream().close();
+
+		Path path = getPath(asset);
+		try {
+			MeshData data = read(path, length, modified);
+			if (data != null)
+				return data;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("cant read mesh cache: " + path + " (" + e.getMessage() + ")");
+		}
+
+		MeshData data = parse(url);
+		try {
+			write(path, data, length, modified);
+		} catch (IOException e) {
+			System.err.println("cant write mesh cache: " + path + " (" + e.getMessage() + ")");
+		}
+		return data;
+	}
+
+	public static MeshData parse(URL url) throws IOException {
+		return MeshData.create(new ObjReader(url, ObjReader.Options.CONVERT_TO_Z_UP).getObject(), MATERIAL);
+	}
+
+	private static Path getPath(String asset) {
+		return Paths.get(ICacheConfig.BASE_PATH, asset.replace('/', '_') + ".bin");
+	}
+
+	private static MeshData read(Path path, long length, long modified) throws IOException {
+		if (!Files.isRegularFile(path))
+			return null;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// check the header before mapping so a stale file can be replaced right away
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != length || header.getLong() != modified)
+				return null;
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, channel.size() - HEADER_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return MeshData.read(buffer);
+		}
+	}
+
+	private static void write(Path path, MeshData data, long length, long modified) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(length);
+		buffer.putLong(modified);
+		data.write(buffer);
+		buffer.flip();
+
+		// write to a temporary file first, so concurrent readers never see partial data
+		Files.createDirectories(path.getParent());
+		Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
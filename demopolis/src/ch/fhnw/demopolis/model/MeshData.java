@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.fhnw.demopolis.util.BufferUtilities;
+import ch.fhnw.ether.formats.ModelObject;
+import ch.fhnw.ether.scene.mesh.DefaultMesh;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry.IGeometryAttribute;
+import ch.fhnw.ether.scene.mesh.material.IMaterial;
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// plain triangle and outline data of a parsed obj asset
+public final class MeshData {
+	private final float[][] positions;
+	private final float[][] normals;
+	private final float[][] outlines;
+	private final float[][] triangulations;
+	private IGeometry[] geometries;
+	private List<Polygon> polygons;
+
+	public MeshData(float[][] positions, float[][] normals, float[][] outlines) {
+		this(positions, normals, outlines, new float[outlines.length][]);
+	}
+
+	private MeshData(float[][] positions, float[][] normals, float[][] outlines, float[][] triangulations) {
+		if (positions.length != normals.length || outlines.length != triangulations.length)
+			throw new IllegalArgumentException("mesh data does not match");
+		this.positions = positions;
+		this.normals = normals;
+		this.outlines = outlines;
+		this.triangulations = triangulations;
+	}
+
+	public int getNumMeshes() {
+		return positions.length;
+	}
+
+	public float[] getPositions(int mesh) {
+		return positions[mesh];
+	}
+
+	// may be null if the asset has no normals
+	public float[] getNormals(int mesh) {
+		return normals[mesh];
+	}
+
+	public int getNumOutlines() {
+		return outlines.length;
+	}
+
+	public float[] getOutline(int outline) {
+		return outlines[outline];
+	}
+
+	// triangulation of an outline, either precomputed or computed on first use
+	public synchronized float[] getTriangulation(int outline) {
+		if (triangulations[outline] == null)
+			triangulations[outline] = getOutlines().get(outline).getTriangleVertices();
+		return triangulations[outline];
+	}
+
+	// geometries are created once and shared by all meshes of this asset
+	public List<IMesh> createMeshes(IMaterial material) {
+		IGeometry[] geometries = getGeometries();
+		List<IMesh> meshes = new ArrayList<>(geometries.length);
+		for (IGeometry geometry : geometries)
+			meshes.add(new DefaultMesh(Primitive.TRIANGLES, material, geometry));
+		return meshes;
+	}
+
+	private synchronized IGeometry[] getGeometries() {
+		if (geometries == null) {
+			geometries = new IGeometry[positions.length];
+			for (int i = 0; i < positions.length; ++i)
+				geometries[i] = DefaultGeometry.createVN(positions[i], normals[i]);
+		}
+		return geometries;
+	}
+
+	public synchronized List<Polygon> getOutlines() {
+		if (polygons == null) {
+			List<Polygon> list = new ArrayList<>(outlines.length);
+			for (float[] outline : outlines) {
+				Vec3[] vertices = new Vec3[outline.length / 3];
+				for (int i = 0; i < vertices.length; ++i)
+					vertices[i] = new Vec3(outline[i * 3], outline[i * 3 + 1], outline[i * 3 + 2]);
+				list.add(new Polygon(vertices));
+			}
+			polygons = Collections.unmodifiableList(list);
+		}
+		return polygons;
+	}
+
+	public synchronized int getSize() {
+		int size = 4;
+		for (int i = 0; i < positions.length; ++i)
+			size += BufferUtilities.getSize(positions[i]) + BufferUtilities.getSize(normals[i]);
+		size += 4;
+		for (int i = 0; i < outlines.length; ++i)
+			size += BufferUtilities.getSize(outlines[i]) + BufferUtilities.getSize(triangulations[i]);
+		return size;
+	}
+
+	// writes the data in the buffer's byte order, triangulations are only written if already computed
+	public synchronized void write(ByteBuffer buffer) {
+		buffer.putInt(positions.length);
+		for (int i = 0; i < positions.length; ++i) {
+			BufferUtilities.putFloats(buffer, positions[i]);
+			BufferUtilities.putFloats(buffer, normals[i]);
+		}
+		buffer.putInt(outlines.length);
+		for (int i = 0; i < outlines.length; ++i) {
+			BufferUtilities.putFloats(buffer, outlines[i]);
+			BufferUtilities.putFloats(buffer, triangulations[i]);
+		}
+	}
+
+	public static MeshData read(ByteBuffer buffer) {
+		int numMeshes = buffer.getInt();
+		float[][] positions = new float[numMeshes][];
+		float[][] normals = new float[numMeshes][];
+		for (int i = 0; i < numMeshes; ++i) {
+			positions[i] = BufferUtilities.getFloats(buffer);
+			normals[i] = BufferUtilities.getFloats(buffer);
+		}
+		int numOutlines = buffer.getInt();
+		float[][] outlines = new float[numOutlines][];
+		float[][] triangulations = new float[numOutlines][];
+		for (int i = 0; i < numOutlines; ++i) {
+			outlines[i] = BufferUtilities.getFloats(buffer);
+			triangulations[i] = BufferUtilities.getFloats(buffer);
+		}
+		return new MeshData(positions, normals, outlines, triangulations);
+	}
+
+	// concatenates all meshes and outlines into a single mesh
+	public static MeshData merge(List<MeshData> data) {
+		int numPositions = 0;
+		int numNormals = 0;
+		int numOutlines = 0;
+		for (MeshData d : data) {
+			for (int i = 0; i < d.positions.length; ++i) {
+				numPositions += d.positions[i].length;
+				numNormals += d.normals[i] != null ? d.normals[i].length : 0;
+			}
+			numOutlines += d.outlines.length;
+		}
+		if (numNormals != 0 && numNormals != numPositions)
+			throw new IllegalArgumentException("cannot merge meshes with and without normals");
+
+		float[] positions = new float[numPositions];
+		float[] normals = numNormals != 0 ? new float[numNormals] : null;
+		float[][] outlines = new float[numOutlines][];
+		int offset = 0;
+		int outline = 0;
+		for (MeshData d : data) {
+			for (int i = 0; i < d.positions.length; ++i) {
+				System.arraycopy(d.positions[i], 0, positions, offset, d.positions[i].length);
+				if (normals != null)
+					System.arraycopy(d.normals[i], 0, normals, offset, d.normals[i].length);
+				offset += d.positions[i].length;
+			}
+			for (float[] o : d.outlines)
+				outlines[outline++] = o;
+		}
+		return new MeshData(new float[][] { positions }, new float[][] { normals }, outlines);
+	}
+
+	public static MeshData create(ModelObject object, IMaterial material) {
+		List<IMesh> meshes = object.getMeshes(material);
+		float[][] positions = new float[meshes.size()][];
+		float[][] normals = new float[meshes.size()][];
+		for (int i = 0; i < meshes.size(); ++i) {
+			IMesh mesh = meshes.get(i);
+			IGeometryAttribute[] attributes = mesh.getGeometry().getAttributes();
+			float[][] data = mesh.getTransformedGeometryData();
+			for (int a = 0; a < attributes.length; ++a) {
+				if (attributes[a] == IGeometry.POSITION_ARRAY)
+					positions[i] = data[a];
+				else if (attributes[a] == IGeometry.NORMAL_ARRAY)
+					normals[i] = data[a];
+			}
+			if (positions[i] == null)
+				throw new IllegalArgumentException("mesh without positions");
+		}
+
+		List<float[]> outlines = new ArrayList<>();
+		object.getExpandedVertices().forEach(s -> {
+			List<Vec3> vertices = new Polygon(s).asList();
+			float[] outline = new float[vertices.size() * 3];
+			for (int i = 0; i < vertices.size(); ++i) {
+				Vec3 v = vertices.get(i);
+				outline[i * 3] = v.x;
+				outline[i * 3 + 1] = v.y;
+				outline[i * 3 + 2] = v.z;
+			}
+			outlines.add(outline);
+		});
+		return new MeshData(positions, normals, outlines.toArray(new float[outlines.size()][]));
+	}
+}
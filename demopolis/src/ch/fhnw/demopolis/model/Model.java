@@ -30,27 +30,91 @@
 package ch.fhnw.demopolis.model;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
+import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.ILogConfig;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
+import ch.fhnw.demopolis.util.StartupTracer;
+import ch.fhnw.demopolis.util.StartupTracer.Phase;
+import ch.fhnw.ether.scene.mesh.IMesh;
 
 public final class Model {
+	// entities needed by the first tool, everything else is loaded in the background
+	private static final EnumSet<Type> INITIAL_TYPES = EnumSet.of(Type.BLOCK);
+	private static final EnumSet<Type> DEFERRED_TYPES = EnumSet.complementOf(INITIAL_TYPES);
+
 	private final IScenario scenario;
 	
 	private final Materials materials = new Materials();
 	private final StaticEnvironment environment = new StaticEnvironment();
 	private final Population population = new Population();
 	private final ScenarioWriter writer = new ScenarioWriter();
+	private final GenerationCache generationCache = new GenerationCache();
+	
+	private final DesignEntityList designEntities = new DesignEntityList();
+	private final List<Speculation> speculations = new ArrayList<>();
+	private final List<MeshData> retainedMeshes = new ArrayList<>();
+	
+	private final CompletableFuture<Void> populationStage;
+	private final CompletableFuture<List<IDesignEntity>> entityStage;
+	private boolean entitiesAttached;
 	
-	private final List<IDesignEntity> designEntities = new ArrayList<>();
+	private long seed = I3DConfig.GENERATION_SEED;
 	
 	public Model(IScenario scenario) throws IOException {
 		this.scenario = scenario;
-		environment.load(this);
-		population.load(this);
-		resetDesignEntities();
+		boolean restored;
+		try (Phase phase = StartupTracer.begin("snapshot")) {
+			restored = ModelSnapshot.restore(this);
+		}
+		if (!restored) {
+			try (Phase phase = StartupTracer.begin("environment")) {
+				environment.load(this);
+			}
+			populationStage = CompletableFuture.runAsync(() -> {
+				try (Phase phase = StartupTracer.begin("population")) {
+					population.load(this);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} else {
+			populationStage = CompletableFuture.completedFuture(null);
+		}
+		try (Phase phase = StartupTracer.begin("entities")) {
+			resetDesignEntities();
+		}
+		entityStage = CompletableFuture.supplyAsync(() -> {
+			try (Phase phase = StartupTracer.begin("deferred entities")) {
+				return scenario.getEntities(DEFERRED_TYPES);
+			}
+		});
+		if (!restored) {
+			Thread t = new Thread(() -> {
+				awaitPopulation();
+				awaitEntities();
+				ModelSnapshot.save(this);
+			}, "snapshot writer");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+	
+	// keeps restored mesh data strongly reachable for the lifetime of the model
+	void retainMeshes(Collection<MeshData> meshes) {
+		retainedMeshes.addAll(meshes);
 	}
 	
 	public IScenario getScenario() {
@@ -69,17 +133,97 @@ public final class Model {
 		return population;
 	}
 	
+	public long getSeed() {
+		return seed;
+	}
+	
+	// changes the seed of all randomized generation. cached results become invalid.
+	public void setSeed(long seed) {
+		this.seed = seed;
+		generationCache.clear();
+	}
+	
+	public GenerationCache getGenerationCache() {
+		return generationCache;
+	}
+	
 	public List<IDesignEntity> getDesignEntities() {
 		return designEntities;
 	}
 	
+	// incremented whenever the design entity list is modified
+	public int getDesignVersion() {
+		return designEntities.getVersion();
+	}
+	
 	public void setDesignEntities(List<IDesignEntity> entities) {
 		designEntities.clear();
 		designEntities.addAll(entities);		
 	}
 	
 	public void resetDesignEntities() {
-		setDesignEntities(scenario.getEntities());
+		cancelSpeculations();
+		// note: entityStage is null while called from the constructor
+		entitiesAttached = entityStage != null && entityStage.isDone() && !entityStage.isCompletedExceptionally();
+		setDesignEntities(entitiesAttached ? scenario.getEntities() : scenario.getEntities(INITIAL_TYPES));
+	}
+	
+	// starts speculative generation of the design entities matching the filter
+	// (call from scene thread, once the matching entities are final)
+	public void speculate(Predicate<IDesignEntity> filter, boolean finalHeights) {
+		List<IDesignEntity> entities = new ArrayList<>();
+		for (IDesignEntity entity : designEntities) {
+			if (filter.test(entity))
+				entities.add(entity);
+		}
+		speculations.add(new Speculation(this, entities, finalHeights));
+	}
+	
+	public List<Speculation> takeSpeculations() {
+		List<Speculation> result = new ArrayList<>(speculations);
+		speculations.clear();
+		return result;
+	}
+	
+	private void cancelSpeculations() {
+		speculations.forEach(Speculation::cancel);
+		speculations.clear();
+	}
+	
+	// adds the entities loaded in the background to the design entities (call from scene thread).
+	// returns the added entities, or an empty list if they are not loaded yet or already attached.
+	public List<IDesignEntity> attachLoadedEntities() {
+		if (entitiesAttached || !entityStage.isDone())
+			return Collections.emptyList();
+		entitiesAttached = true;
+		List<IDesignEntity> entities = awaitEntities();
+		designEntities.addAll(entities);
+		return entities;
+	}
+	
+	public boolean isEntitiesLoaded() {
+		return entityStage.isDone();
+	}
+	
+	public void whenEntitiesLoaded(Runnable action) {
+		entityStage.thenRun(action);
+	}
+	
+	public List<IDesignEntity> awaitEntities() {
+		try {
+			return entityStage.join();
+		} catch (Exception e) {
+			System.err.println("cant load entities: " + e);
+			return Collections.emptyList();
+		}
+	}
+	
+	public void awaitPopulation() {
+		try {
+			populationStage.join();
+		} catch (Exception e) {
+			System.err.println("cant load population: " + e);
+		}
 	}
 	
 	public void write() {
@@ -89,4 +233,29 @@ public final class Model {
 			System.err.println("cant write scenario: " + e);
 		}
 	}
+	
+	// exports generated meshes and population in the background. the static environment is
+	// exported only once per scenario and referenced by file name.
+	// NOTE: must be called on the scene thread with materials fully faded in
+	public void export(List<IMesh> generated) {
+		if (!ILogConfig.EXPORT_SCENE)
+			return;
+		Path environmentPath = Paths.get(ILogConfig.BASE_PATH, "environment_" + scenario.getName().replaceAll("[^A-Za-z0-9]", "_") + ".glb");
+		SceneExporter environmentExporter = Files.exists(environmentPath) ? null : new SceneExporter(environment.getMeshes());
+		SceneExporter exporter = new SceneExporter(generated, population.getTemplates(), population.getInstances(), population.getAtlas(), environmentPath.getFileName().toString());
+		Path path = Paths.get(ILogConfig.BASE_PATH, "glb" + System.currentTimeMillis() + ".glb");
+		Thread t = new Thread(() -> {
+			try {
+				if (environmentExporter != null)
+					environmentExporter.write(environmentPath);
+				exporter.write(path);
+			} catch (Exception e) {
+				System.err.println("cant export scene: " + e);
+			}
+		}, "scene exporter");
+		// keep the fly-through smooth
+		t.setPriority(Thread.MIN_PRIORITY);
+		t.setDaemon(true);
+		t.start();
+	}
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import assets.Asset;
+import ch.fhnw.demopolis.config.ICacheConfig;
+import ch.fhnw.demopolis.config.IPopulationAssets;
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.render.TextureAtlas;
+import ch.fhnw.demopolis.util.BufferUtilities;
+
+// snapshot of the loaded model (merged environment layers, entity and vehicle meshes,
+// packed sprite atlas). it is only restored if all assets it was built from are unchanged:
+// size and modification time are compared first, the checksum only if those differ.
+public final class ModelSnapshot {
+	private static final int MAGIC = 0x53504445;
+	private static final int VERSION = 2;
+
+	public static boolean restore(Model model) {
+		IScenario scenario = model.getScenario();
+		if (!ICacheConfig.USE_SNAPSHOT || scenario instanceof BundleScenario)
+			return false;
+
+		Path path = getPath(scenario);
+		if (!Files.isRegularFile(path))
+			return false;
+
+		try {
+			// read into the heap rather than mapping, so the file can be replaced while the model is alive
+			ByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				buffer = ByteBuffer.allocate((int)channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+				buffer.flip();
+			}
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				return false;
+
+			int numChecksums = buffer.getInt();
+			for (int i = 0; i < numChecksums; ++i) {
+				String asset = BufferUtilities.getString(buffer);
+				long size = buffer.getLong();
+				long time = buffer.getLong();
+				long checksum = buffer.getLong();
+				long[] stamp = getStamp(asset);
+				if (stamp != null && stamp[0] == size && stamp[1] == time)
+					continue;
+				if (checksum != getChecksum(asset)) {
+					System.out.println("snapshot outdated: " + asset + " changed");
+					return false;
+				}
+			}
+
+			String[][] layerAssets = StaticEnvironment.getLayerAssets(scenario);
+			MeshData[] layers = new MeshData[StaticEnvironment.NUM_LAYERS];
+			for (int i = 0; i < layers.length; ++i) {
+				String[] assets = new String[buffer.getInt()];
+				for (int j = 0; j < assets.length; ++j)
+					assets[j] = BufferUtilities.getString(buffer);
+				if (!Arrays.equals(assets, layerAssets[i])) {
+					System.out.println("snapshot outdated: static layers changed");
+					return false;
+				}
+				layers[i] = MeshData.read(buffer);
+			}
+
+			Map<String, MeshData> meshes = new LinkedHashMap<>();
+			int numMeshes = buffer.getInt();
+			for (int i = 0; i < numMeshes; ++i) {
+				String asset = BufferUtilities.getString(buffer);
+				meshes.put(asset, MeshData.read(buffer));
+			}
+
+			TextureAtlas atlas = TextureAtlas.read(buffer);
+
+			// the registry only holds soft references, the model keeps the restored meshes alive
+			meshes.forEach(AssetRegistry::register);
+			model.retainMeshes(meshes.values());
+			model.getEnvironment().load(model, layers);
+			model.getPopulation().load(atlas);
+			System.out.println("restored snapshot " + path);
+			return true;
+		} catch (Exception e) {
+			System.err.println("cant restore snapshot: " + e);
+			return false;
+		}
+	}
+
+	public static void save(Model model) {
+		IScenario scenario = model.getScenario();
+		if (!ICacheConfig.USE_SNAPSHOT || scenario instanceof BundleScenario)
+			return;
+
+		Path path = getPath(scenario);
+		try {
+			String[][] layerAssets = StaticEnvironment.getLayerAssets(scenario);
+			MeshData[] layers = model.getEnvironment().getLayers();
+
+			Map<String, MeshData> meshes = new LinkedHashMap<>();
+			for (IDesignEntity entity : scenario.getEntities())
+				meshes.put(entity.getAsset(), AssetRegistry.getMesh(entity.getAsset()));
+			for (String asset : IPopulationAssets.CARS)
+				meshes.put(asset, AssetRegistry.getMesh(asset));
+
+			TextureAtlas atlas = model.getPopulation().getAtlas();
+
+			Set<String> assets = new LinkedHashSet<>();
+			for (String[] layer : layerAssets)
+				assets.addAll(Arrays.asList(layer));
+			assets.addAll(meshes.keySet());
+			assets.addAll(Arrays.asList(Population.getSprites()));
+
+			int size = 12;
+			for (String asset : assets)
+				size += BufferUtilities.getSize(asset) + 24;
+			for (int i = 0; i < layers.length; ++i) {
+				size += 4;
+				for (String asset : layerAssets[i])
+					size += BufferUtilities.getSize(asset);
+				size += layers[i].getSize();
+			}
+			size += 4;
+			for (Map.Entry<String, MeshData> e : meshes.entrySet())
+				size += BufferUtilities.getSize(e.getKey()) + e.getValue().getSize();
+			size += atlas.getSize();
+
+			ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(assets.size());
+			for (String asset : assets) {
+				BufferUtilities.putString(buffer, asset);
+				long[] stamp = getStamp(asset);
+				buffer.putLong(stamp != null ? stamp[0] : -1);
+				buffer.putLong(stamp != null ? stamp[1] : -1);
+				buffer.putLong(getChecksum(asset));
+			}
+			for (int i = 0; i < layers.length; ++i) {
+				buffer.putInt(layerAssets[i].length);
+				for (String asset : layerAssets[i])
+					BufferUtilities.putString(buffer, asset);
+				layers[i].write(buffer);
+			}
+			buffer.putInt(meshes.size());
+			for (Map.Entry<String, MeshData> e : meshes.entrySet()) {
+				BufferUtilities.putString(buffer, e.getKey());
+				e.getValue().write(buffer);
+			}
+			atlas.write(buffer);
+			buffer.flip();
+
+			Files.createDirectories(path.getParent());
+			Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("wrote snapshot " + path);
+		} catch (Exception e) {
+			System.err.println("cant write snapshot: " + e);
+		}
+	}
+
+	private static Path getPath(IScenario scenario) {
+		return Paths.get(ICacheConfig.BASE_PATH, "snapshot_" + scenario.getName().replaceAll("[^A-Za-z0-9]", "_") + ".bin");
+	}
+
+	// returns size and modification time of an asset file or jar entry, or null if unknown
+	private static long[] getStamp(String asset) throws IOException {
+		URL url = Asset.get(asset);
+		if ("file".equals(url.getProtocol())) {
+			try {
+				Path path = Paths.get(url.toURI());
+				return new long[] { Files.size(path), Files.getLastModifiedTime(path).toMillis() };
+			} catch (URISyntaxException e) {
+				return null;
+			}
+		}
+		URLConnection connection = url.openConnection();
+		if (connection instanceof JarURLConnection) {
+			JarEntry entry = ((JarURLConnection)connection).getJarEntry();
+			if (entry != null && entry.getSize() >= 0 && entry.getTime() >= 0)
+				return new long[] { entry.getSize(), entry.getTime() };
+		}
+		return null;
+	}
+
+	private static long getChecksum(String asset) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] bytes = new byte[65536];
+		try (InputStream in = Asset.get(asset).openStream()) {
+			for (int n; (n = in.read(bytes)) > 0;)
+				crc.update(bytes, 0, n);
+		}
+		return crc.getValue();
+	}
+}
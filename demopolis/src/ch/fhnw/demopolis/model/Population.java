@@ -31,16 +31,20 @@ package ch.fhnw.demopolis.model;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.IPopulationAssets;
+import ch.fhnw.demopolis.model.entities.ShapeGeometry;
 import ch.fhnw.demopolis.render.MaskMaterial;
 import ch.fhnw.demopolis.render.PolisMaterial;
-import ch.fhnw.ether.formats.obj.ObjReader;
-import ch.fhnw.ether.image.Frame;
+import ch.fhnw.demopolis.render.TextureAtlas;
+import ch.fhnw.demopolis.render.TextureAtlas.Region;
+import ch.fhnw.demopolis.util.SeededRandom;
+import ch.fhnw.demopolis.util.SpatialHash;
+import ch.fhnw.demopolis.util.ViewCone;
 import ch.fhnw.ether.scene.IScene;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
@@ -48,11 +52,10 @@ import ch.fhnw.ether.scene.mesh.IMesh.Flag;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
 import ch.fhnw.ether.scene.mesh.MeshUtilities;
 import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
-import ch.fhnw.ether.scene.mesh.material.Texture;
+import ch.fhnw.util.FloatList;
 import ch.fhnw.util.color.RGB;
-import ch.fhnw.util.math.Mat4;
-import ch.fhnw.util.math.MathUtilities;
 import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.GeometryUtilities;
 import ch.fhnw.util.math.geometry.Polygon;
 
 public class Population {
@@ -82,10 +85,10 @@ public class Population {
 	}
 
 	private static class Place {
-		final Polygon area;
+		final ShapeGeometry area;
 		final List<Vec3> occlusion;
 		
-		Place(Polygon area, List<Vec3> occlusion) {
+		Place(ShapeGeometry area, List<Vec3> occlusion) {
 			this.area = area;
 			this.occlusion = occlusion;
 		}
@@ -94,29 +97,57 @@ public class Population {
 	private final List<IMesh> persons = new ArrayList<>();
 	private final List<IMesh> cyclists = new ArrayList<>();
 	private final List<IMesh> cars = new ArrayList<>();
+	private final List<IMesh> carBoxes = new ArrayList<>();
+	private final List<IMesh> templates = new ArrayList<>();
+	
+	// placed instances as (template index, x, y, z, angle), kept for export
+	private final FloatList instances = new FloatList();
 	
 	private final List<Lane> lanes = new ArrayList<>();
 	private final List<Place> places = new ArrayList<>();
 	
-	private List<IMesh> meshes = new ArrayList<>();
+	private final LevelOfDetail detail = new LevelOfDetail();
 	
 	private boolean fender = false;
 	
+	private TextureAtlas atlas;
+	
 	public Population() {
 	}
 
 	public void load(Model model) throws IOException {
+		load(new TextureAtlas(getSprites()));
+	}
+
+	// loads with an already packed sprite atlas, e.g. from a snapshot
+	public void load(TextureAtlas atlas) throws IOException {
+		// all sprites share one atlas and material, so the crowd merges into a single mesh
+		this.atlas = atlas;
+		MaskMaterial material = new MaskMaterial(atlas.getTexture());
+
 		for (String s : IPopulationAssets.PERSONS)
-			persons.add(getFlatMesh(s, IPopulationAssets.PERSON_HEIGHT));
+			persons.add(getFlatMesh(material, atlas.getRegion(s), IPopulationAssets.PERSON_HEIGHT));
 		
 		for (String s : IPopulationAssets.CYLISTS)
-			cyclists.add(getFlatMesh(s, IPopulationAssets.CYCLIST_HEIGHT));
+			cyclists.add(getFlatMesh(material, atlas.getRegion(s), IPopulationAssets.CYCLIST_HEIGHT));
+		
+		for (String s : IPopulationAssets.CARS) {
+			IMesh car = getVehicleMesh(s);
+			cars.add(car);
+			carBoxes.add(getVehicleBox(car));
+		}
 		
-		for (String s : IPopulationAssets.CARS)
-			cars.add(getVehicleMesh(s));
+		templates.addAll(persons);
+		templates.addAll(cyclists);
+		templates.addAll(cars);
 	}
 	
-	public void addToScene(IScene scene) {
+	public TextureAtlas getAtlas() {
+		return atlas;
+	}
+	
+	public void addToScene(IScene scene, long seed) {
+		SeededRandom random = new SeededRandom(seed);
 		for (Lane lane : lanes) {
 			boolean pedestrian = lane.types.contains(Type.PERSONS);
 			float distance = pedestrian ? IPopulationAssets.PEDESTRIAN_GAP : IPopulationAssets.CAR_GAP;
@@ -124,47 +155,79 @@ public class Population {
 			
 			float delta = distance / lane.length;
 			for (float t = 0; t < 1; t += delta) {
-				if (Math.random() > prob)
+				if (random.random() > prob)
 					continue;
 				Vec3 v = Vec3.lerp(lane.v0, lane.v1, t);
-				float x = pedestrian ? v.x + MathUtilities.random(-lane.width / 3, lane.width / 3) : v.x;
-				float y = pedestrian ? v.y + MathUtilities.random(-lane.width / 3, lane.width / 3) : v.y;
-				float angle = pedestrian ? lane.angle + MathUtilities.random(0, 360) : lane.angle;
-				meshes.add(instantiate(getMesh(lane.types), x, y, angle));
+				float x = pedestrian ? v.x + random.random(-lane.width / 3, lane.width / 3) : v.x;
+				float y = pedestrian ? v.y + random.random(-lane.width / 3, lane.width / 3) : v.y;
+				float angle = pedestrian ? lane.angle + random.random(0, 360) : lane.angle;
+				add(getMesh(random, lane.types), x, y, angle);
 			}
 		}
 		
 		for (Place place : places) {
-			Polygon p = place.area.offset(2);
-			float u = p.getExtentU();
-			float v = p.getExtentV();
+			ShapeGeometry g = place.area.getOffset(2);
+			if (g == null)
+				continue;
+			Polygon p = g.getPolygon();
+			float u = g.getExtentU();
+			float v = g.getExtentV();
 			float a = u * v;
 			int n = (int)(a * IPopulationAssets.NUM_PEOPLE);
-			person:
+			if (n == 0)
+				continue;
+
+			// poisson disk sampling: occluders and placed people are kept in spatial
+			// hashes, so each candidate only tests its neighbourhood
+			SpatialHash occluders = new SpatialHash(IPopulationAssets.PERSON_SPACING);
+			for (Vec3 o : place.occlusion)
+				occluders.add(o.x, o.y, o.z);
+			SpatialHash people = new SpatialHash(IPopulationAssets.PERSON_SPACING);
+			float r = IPopulationAssets.PERSON_SPACING / 2;
+			float cx = g.getCenter().x;
+			float cy = g.getCenter().y;
 			for (int i = 0; i < n; ++i) {
-				float x = MathUtilities.random(-u, u);
-				float y = MathUtilities.random(-v, v);
-				Vec3 v0 = p.getCenter().add(new Vec3(x, y, 0));
-				if (p.project(v0) == null)
-					continue person;
-				for (Vec3 o : place.occlusion) {
-					Vec3 v1 = new Vec3(o.x, o.y, 0);
-					float r = o.z;
-					if (v0.distance(v1) < r + 1)
-						continue person;
+				for (int attempt = 0; attempt < IPopulationAssets.PERSON_ATTEMPTS; ++attempt) {
+					float x = cx + random.random(-u, u);
+					float y = cy + random.random(-v, v);
+					// as with uniform sampling, candidates outside the area or under vegetation drop the person
+					if (!GeometryUtilities.testPointInPolygon2D(x, y, p) || occluders.intersects(x, y, 1))
+						break;
+					if (people.intersects(x, y, r))
+						continue;
+					people.add(x, y, r);
+					add(getMesh(random, EnumSet.of(Type.PERSONS)), x, y, random.random(0, 360));
+					break;
 				}
-				float angle = MathUtilities.random(0, 360);
-				meshes.add(instantiate(getMesh(EnumSet.of(Type.PERSONS)), v0.x, v0.y, angle));
 			}
 		}
 
-		System.out.println("merging from: " + meshes.size());
-		meshes = MeshUtilities.mergeMeshes(meshes);
-		System.out.println("merged to: " + meshes.size());
-		scene.add3DObjects(meshes);
+		detail.build();
+		detail.show(scene, LevelOfDetail.Level.NEAR);
 	}
 	
-	private IMesh getMesh(EnumSet<Type> types) {
+	public List<IMesh> getTemplates() {
+		return Collections.unmodifiableList(templates);
+	}
+	
+	public float[] getInstances() {
+		return instances.toArray();
+	}
+	
+	public void updateDetail(IScene scene, ViewCone cone) {
+		detail.update(scene, cone);
+	}
+	
+	// people and cyclists are only shown near the camera, cars are replaced by boxes further away
+	private void add(IMesh mesh, float x, float y, float angle) {
+		detail.getBuilder(x, y, LevelOfDetail.Level.NEAR).add(mesh, x, y, I3DConfig.LAYER_2, angle);
+		instances.addAll(templates.indexOf(mesh), x, y, I3DConfig.LAYER_2, angle);
+		int car = cars.indexOf(mesh);
+		if (car >= 0)
+			detail.getBuilder(x, y, LevelOfDetail.Level.FAR).add(carBoxes.get(car), x, y, I3DConfig.LAYER_2, angle);
+	}
+	
+	private IMesh getMesh(SeededRandom random, EnumSet<Type> types) {
 		boolean checkFender = false;
 		List<IMesh> meshes = null;
 		if (types.size() == 1) {
@@ -178,12 +241,12 @@ public class Population {
 			}
 		} else {
 			if (types.contains(Type.PERSONS)) {
-				meshes = (Math.random() > IPopulationAssets.CYCLIST_PROBABILITY) ? persons : cyclists;
+				meshes = (random.random() > IPopulationAssets.CYCLIST_PROBABILITY) ? persons : cyclists;
 			} else {
-				meshes = (Math.random() > IPopulationAssets.CYCLIST_PROBABILITY) ? cars : cyclists;
+				meshes = (random.random() > IPopulationAssets.CYCLIST_PROBABILITY) ? cars : cyclists;
 			}
 		}
-		int index = MathUtilities.random(0, meshes.size() - 1);
+		int index = random.random(0, meshes.size() - 1);
 		if (checkFender && index == 0) {
 			if (!fender) {
 				fender = true;
@@ -195,12 +258,15 @@ public class Population {
 	}
 
 	public void removeFromScene(IScene scene) {
-		scene.remove3DObjects(meshes);
-		
-		// clean up for next round
-		meshes.clear();
+		detail.removeFromScene(scene);
+		clear();
+	}
+	
+	// clean up for next round
+	public void clear() {
 		lanes.clear();
 		places.clear();
+		instances.clear();
 		fender = false;
 	}
 	
@@ -208,34 +274,59 @@ public class Population {
 		lanes.add(new Lane(p, types));
 	}
 	
-	public void addPlace(Polygon area, List<Vec3> occlusion) {
+	public void addPlace(ShapeGeometry area, List<Vec3> occlusion) {
 		places.add(new Place(area, occlusion));
 	}
 	
-	private static IMesh getFlatMesh(String asset, float h) throws IOException {
-		Texture texture = Frame.create(Asset.get(asset)).getTexture();
-		float aspect = (float)texture.getWidth() / (float)texture.getHeight();
+	public static String[] getSprites() {
+		String[] sprites = new String[IPopulationAssets.PERSONS.length + IPopulationAssets.CYLISTS.length];
+		System.arraycopy(IPopulationAssets.PERSONS, 0, sprites, 0, IPopulationAssets.PERSONS.length);
+		System.arraycopy(IPopulationAssets.CYLISTS, 0, sprites, IPopulationAssets.PERSONS.length, IPopulationAssets.CYLISTS.length);
+		return sprites;
+	}
+	
+	private static IMesh getFlatMesh(MaskMaterial material, Region region, float h) {
+		float aspect = (float)region.width / (float)region.height;
 		float w = 0.5f * h * aspect;
 		float[] v = new float[] { 
 				-w, 0, 0, w, 0, 0, w, 0, h,
 				-w, 0, 0, w, 0, h, -w, 0, h
 		};
-		float[] t = MeshUtilities.DEFAULT_QUAD_TEX_COORDS;
-		return new DefaultMesh(Primitive.TRIANGLES, new MaskMaterial(texture), DefaultGeometry.createVM(v, t), Flag.DONT_CULL_FACE);
+		float[] t = region.map(MeshUtilities.DEFAULT_QUAD_TEX_COORDS);
+		return new DefaultMesh(Primitive.TRIANGLES, material, DefaultGeometry.createVM(v, t), Flag.DONT_CULL_FACE);
 	}
 	
 	private static IMesh getVehicleMesh(String asset) throws IOException {
 		PolisMaterial material = new PolisMaterial(RGB.BLACK, RGB.GRAY80);
-		List<IMesh> meshes = new ObjReader(Asset.get(asset), ObjReader.Options.CONVERT_TO_Z_UP).getMeshes(material);
+		List<IMesh> meshes = AssetRegistry.getMesh(asset).createMeshes(material);
 		meshes = MeshUtilities.mergeMeshes(meshes);
 		if (meshes.size() != 1)
 			throw new IllegalArgumentException("cannot merge meshes into a single mesh");
 		return meshes.get(0);
 	}
 
-	private static IMesh instantiate(IMesh mesh, float x, float y, float rot) {
-		IMesh instance = mesh.getInstance();
-		instance.setTransform(Mat4.trs(x, y, I3DConfig.LAYER_2, 0, 0, rot, 1, 1, 1));
-		return instance;
+	private static IMesh getVehicleBox(IMesh vehicle) {
+		float[] v = vehicle.getTransformedPositionData();
+		float[] min = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY };
+		float[] max = { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+		for (int i = 0; i < v.length; ++i) {
+			min[i % 3] = Math.min(min[i % 3], v[i]);
+			max[i % 3] = Math.max(max[i % 3], v[i]);
+		}
+		float[][] c = new float[8][];
+		for (int i = 0; i < 8; ++i)
+			c[i] = new float[] { (i & 1) == 0 ? min[0] : max[0], (i & 2) == 0 ? min[1] : max[1], (i & 4) == 0 ? min[2] : max[2] };
+		// sides and top, counter-clockwise seen from outside (bottom is never visible)
+		int[][] quads = { { 0, 1, 5, 4 }, { 1, 3, 7, 5 }, { 3, 2, 6, 7 }, { 2, 0, 4, 6 }, { 4, 5, 7, 6 } };
+		float[] triangles = new float[quads.length * 18];
+		int k = 0;
+		for (int[] q : quads) {
+			for (int i : new int[] { q[0], q[1], q[2], q[0], q[2], q[3] }) {
+				triangles[k++] = c[i][0];
+				triangles[k++] = c[i][1];
+				triangles[k++] = c[i][2];
+			}
+		}
+		return new DefaultMesh(Primitive.TRIANGLES, vehicle.getMaterial(), DefaultGeometry.createVN(triangles, null));
 	}
 }
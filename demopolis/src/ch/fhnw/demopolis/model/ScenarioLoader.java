@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
+
+// parses scenario assets in parallel, entities are returned in declaration order.
+// each entity is parsed once, so loading a subset of types first (e.g. blocks)
+// and everything later only parses the remaining entities.
+public final class ScenarioLoader {
+	private static final class Entry {
+		final Type type;
+		final Supplier<IDesignEntity> supplier;
+		IDesignEntity entity;
+		
+		Entry(Type type, Supplier<IDesignEntity> supplier) {
+			this.type = type;
+			this.supplier = supplier;
+		}
+		
+		synchronized IDesignEntity get() {
+			if (entity == null)
+				entity = supplier.get();
+			return entity;
+		}
+	}
+	
+	private final List<Entry> entries = new ArrayList<>();
+
+	public void addBlocks(String... assets) {
+		for (String asset : assets)
+			entries.add(new Entry(IScenario.blockType(asset), () -> IScenario.block(asset)));
+	}
+
+	public void addBuildings(String... assets) {
+		for (String asset : assets)
+			entries.add(new Entry(Type.BUILDING, () -> IScenario.building(asset)));
+	}
+
+	public List<IDesignEntity> load() {
+		return load(EnumSet.allOf(Type.class));
+	}
+
+	public List<IDesignEntity> load(EnumSet<Type> types) {
+		return entries.parallelStream().filter(e -> types.contains(e.type)).map(Entry::get).collect(Collectors.toCollection(ArrayList::new));
+	}
+}
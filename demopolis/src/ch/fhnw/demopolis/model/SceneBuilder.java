@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ch.fhnw.ether.scene.mesh.DefaultMesh;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Flag;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+import ch.fhnw.ether.scene.mesh.IMesh.Queue;
+import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry.IGeometryAttribute;
+import ch.fhnw.ether.scene.mesh.material.IMaterial;
+import ch.fhnw.util.FloatList;
+
+// streaming replacement for MeshUtilities.mergeMeshes: geometry is appended (already
+// transformed) to one growable buffer per material / primitive / flags / attribute
+// layout, and only the merged meshes are created in build().
+public final class SceneBuilder {
+	private static final class Key {
+		final IMaterial material;
+		final Primitive primitive;
+		final Queue queue;
+		final EnumSet<Flag> flags;
+		final IGeometryAttribute[] attributes;
+
+		Key(IMesh mesh) {
+			this.material = mesh.getMaterial();
+			this.primitive = mesh.getType();
+			this.queue = mesh.getQueue();
+			this.flags = EnumSet.noneOf(Flag.class);
+			for (Flag flag : Flag.values()) {
+				if (mesh.hasFlag(flag))
+					flags.add(flag);
+			}
+			this.attributes = mesh.getGeometry().getAttributes();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key k = (Key)obj;
+			return material == k.material && primitive == k.primitive && queue == k.queue && flags.equals(k.flags) && Arrays.equals(attributes, k.attributes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(material), primitive, queue, flags, Arrays.hashCode(attributes));
+		}
+	}
+
+	private static final class Bucket {
+		final Key key;
+		final FloatList[] data;
+
+		Bucket(Key key) {
+			this.key = key;
+			this.data = new FloatList[key.attributes.length];
+			for (int i = 0; i < data.length; ++i)
+				data[i] = new FloatList();
+		}
+	}
+
+	private final Map<Key, Bucket> buckets = new LinkedHashMap<>();
+	private final Map<IMesh, float[][]> templates = new IdentityHashMap<>();
+	private int numAdded;
+
+	// appends a mesh with its current transform
+	public void add(IMesh mesh) {
+		Bucket bucket = getBucket(mesh);
+		float[][] data = mesh.getTransformedGeometryData();
+		for (int i = 0; i < data.length; ++i)
+			bucket.data[i].addAll(data[i]);
+		numAdded++;
+	}
+
+	// appends vertices [first, first + count) of a mesh, data as returned by getTransformedGeometryData
+	public void add(IMesh mesh, float[][] data, int first, int count) {
+		Bucket bucket = getBucket(mesh);
+		int n = getNumVertices(bucket.key.attributes, data);
+		for (int i = 0; i < data.length; ++i) {
+			int size = data[i].length / n;
+			FloatList dst = bucket.data[i];
+			for (int j = first * size, end = (first + count) * size; j < end; ++j)
+				dst.add(data[i][j]);
+		}
+		numAdded++;
+	}
+
+	public void addAll(List<IMesh> meshes) {
+		meshes.forEach(this::add);
+	}
+
+	// appends an instance of a template mesh, rotated around z (degrees) and translated
+	public void add(IMesh template, float x, float y, float z, float rotation) {
+		Bucket bucket = getBucket(template);
+		float[][] data = templates.computeIfAbsent(template, IMesh::getTransformedGeometryData);
+		float a = (float)Math.toRadians(rotation);
+		float cos = (float)Math.cos(a);
+		float sin = (float)Math.sin(a);
+		for (int i = 0; i < data.length; ++i) {
+			IGeometryAttribute attribute = bucket.key.attributes[i];
+			float[] src = data[i];
+			FloatList dst = bucket.data[i];
+			if (attribute == IGeometry.POSITION_ARRAY) {
+				for (int j = 0; j < src.length; j += 3) {
+					dst.add(cos * src[j] - sin * src[j + 1] + x);
+					dst.add(sin * src[j] + cos * src[j + 1] + y);
+					dst.add(src[j + 2] + z);
+				}
+			} else if (attribute == IGeometry.NORMAL_ARRAY) {
+				for (int j = 0; j < src.length; j += 3) {
+					dst.add(cos * src[j] - sin * src[j + 1]);
+					dst.add(sin * src[j] + cos * src[j + 1]);
+					dst.add(src[j + 2]);
+				}
+			} else {
+				dst.addAll(src);
+			}
+		}
+		numAdded++;
+	}
+
+	public int getNumAdded() {
+		return numAdded;
+	}
+
+	public List<IMesh> build() {
+		List<IMesh> meshes = new ArrayList<>(buckets.size());
+		for (Bucket bucket : buckets.values()) {
+			Key key = bucket.key;
+			IGeometry geometry = createGeometry(key.attributes, bucket.data);
+			if (key.flags.isEmpty()) {
+				meshes.add(new DefaultMesh(key.primitive, key.material, geometry, key.queue));
+			} else {
+				Flag[] flags = key.flags.toArray(new Flag[key.flags.size()]);
+				meshes.add(new DefaultMesh(key.primitive, key.material, geometry, key.queue, flags[0], Arrays.copyOfRange(flags, 1, flags.length)));
+			}
+		}
+		buckets.clear();
+		templates.clear();
+		numAdded = 0;
+		return meshes;
+	}
+
+	private Bucket getBucket(IMesh mesh) {
+		return buckets.computeIfAbsent(new Key(mesh), Bucket::new);
+	}
+
+	static int getNumVertices(IGeometryAttribute[] attributes, float[][] data) {
+		for (int i = 0; i < attributes.length; ++i) {
+			if (attributes[i] == IGeometry.POSITION_ARRAY)
+				return data[i].length / 3;
+		}
+		throw new IllegalArgumentException("geometry without positions");
+	}
+
+	private static IGeometry createGeometry(IGeometryAttribute[] attributes, FloatList[] data) {
+		float[] positions = get(attributes, data, IGeometry.POSITION_ARRAY);
+		float[] normals = get(attributes, data, IGeometry.NORMAL_ARRAY);
+		float[] colors = get(attributes, data, IGeometry.COLOR_ARRAY);
+		float[] texCoords = get(attributes, data, IGeometry.COLOR_MAP_ARRAY);
+		if (positions == null)
+			throw new IllegalArgumentException("geometry without positions");
+
+		int n = 1 + (normals != null ? 1 : 0) + (colors != null ? 1 : 0) + (texCoords != null ? 1 : 0);
+		if (n != attributes.length)
+			throw new IllegalArgumentException("unsupported geometry attributes: " + Arrays.toString(attributes));
+
+		if (normals != null && colors == null && texCoords == null)
+			return DefaultGeometry.createVN(positions, normals);
+		if (normals == null && colors == null && texCoords != null)
+			return DefaultGeometry.createVM(positions, texCoords);
+		if (normals == null && colors != null && texCoords != null)
+			return DefaultGeometry.createVCM(positions, colors, texCoords);
+		if (normals == null && colors != null && texCoords == null)
+			return DefaultGeometry.createVC(positions, colors);
+		if (normals == null && colors == null && texCoords == null)
+			return DefaultGeometry.createV(positions);
+		throw new IllegalArgumentException("unsupported geometry attributes: " + Arrays.toString(attributes));
+	}
+
+	private static float[] get(IGeometryAttribute[] attributes, FloatList[] data, IGeometryAttribute attribute) {
+		for (int i = 0; i < attributes.length; ++i) {
+			if (attributes[i] == attribute)
+				return data[i].toArray();
+		}
+		return null;
+	}
+}
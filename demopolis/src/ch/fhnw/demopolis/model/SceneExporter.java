@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+
+import ch.fhnw.demopolis.render.MaskMaterial;
+import ch.fhnw.demopolis.render.PolisMaterial;
+import ch.fhnw.demopolis.render.TextureAtlas;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Flag;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry.IGeometryAttribute;
+import ch.fhnw.ether.scene.mesh.material.IMaterial;
+import ch.fhnw.util.color.RGB;
+
+// writes the generated scene as binary gltf (.glb). meshes are converted one at a time into
+// indexed, deduplicated vertex buffers that are streamed to a temporary file, so memory use
+// stays bounded by the largest mesh. population instances reference shared template meshes.
+// materials are captured in the constructor (call it on the scene thread, when fully faded in),
+// write() only reads geometry and can run in the background. the static environment can be
+// exported once on its own and referenced by name (asset.extras.environment).
+public final class SceneExporter {
+	private static final int MAGIC = 0x46546C67;
+	private static final int VERSION = 2;
+	private static final int CHUNK_JSON = 0x4E4F534A;
+	private static final int CHUNK_BIN = 0x004E4942;
+
+	private static final int FLOAT = 5126;
+	private static final int UNSIGNED_SHORT = 5123;
+	private static final int UNSIGNED_INT = 5125;
+	private static final int ARRAY_BUFFER = 34962;
+	private static final int ELEMENT_ARRAY_BUFFER = 34963;
+	private static final int TRIANGLES = 4;
+
+	// gltf is y-up, demopolis is z-up
+	private static final float[] Z_UP = { -(float)Math.sqrt(0.5), 0, 0, (float)Math.sqrt(0.5) };
+
+	private final List<IMesh> meshes;
+	private final List<IMesh> templates;
+	private final float[] instances;
+	private final TextureAtlas atlas;
+	private final String environment;
+
+	private final Map<IMaterial, Integer> materialIndices = new IdentityHashMap<>();
+	private final JsonArray materials;
+	private boolean textured;
+
+	private JsonArrayBuilder accessors;
+	private JsonArrayBuilder bufferViews;
+	private int numAccessors;
+	private int numBufferViews;
+	private long binLength;
+
+	public SceneExporter(List<IMesh> meshes) {
+		this(meshes, Collections.emptyList(), new float[0], null, null);
+	}
+
+	// instances are (template index, x, y, z, rotation around z in degrees) tuples,
+	// environment is the file name of a separate environment export, or null
+	public SceneExporter(List<IMesh> meshes, List<IMesh> templates, float[] instances, TextureAtlas atlas, String environment) {
+		if (instances.length % 5 != 0)
+			throw new IllegalArgumentException("invalid instance data: " + instances.length);
+		this.meshes = new ArrayList<>(meshes);
+		this.templates = new ArrayList<>(templates);
+		this.instances = instances.clone();
+		this.atlas = atlas;
+		this.environment = environment;
+		JsonArrayBuilder materials = Json.createArrayBuilder();
+		this.meshes.forEach(mesh -> addMaterial(materials, mesh));
+		this.templates.forEach(mesh -> addMaterial(materials, mesh));
+		this.materials = materials.build();
+	}
+
+	public void write(Path path) throws IOException {
+		accessors = Json.createArrayBuilder();
+		bufferViews = Json.createArrayBuilder();
+		numAccessors = 0;
+		numBufferViews = 0;
+		binLength = 0;
+
+		Path bin = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".bin");
+		try {
+			JsonArrayBuilder gltfMeshes = Json.createArrayBuilder();
+			JsonArrayBuilder nodes = Json.createArrayBuilder();
+			JsonArrayBuilder children = Json.createArrayBuilder();
+			int numMeshes = 0;
+			int numNodes = 0;
+			int[] templateIndices = new int[templates.size()];
+			try (FileChannel channel = FileChannel.open(bin, StandardOpenOption.WRITE)) {
+				for (IMesh mesh : meshes) {
+					JsonObjectBuilder primitive = writeMesh(channel, mesh);
+					if (primitive == null)
+						continue;
+					gltfMeshes.add(Json.createObjectBuilder().add("primitives", Json.createArrayBuilder().add(primitive)));
+					nodes.add(Json.createObjectBuilder().add("mesh", numMeshes++));
+					children.add(numNodes++);
+				}
+				for (int i = 0; i < templates.size(); ++i) {
+					JsonObjectBuilder primitive = writeMesh(channel, templates.get(i));
+					if (primitive == null) {
+						templateIndices[i] = -1;
+						continue;
+					}
+					gltfMeshes.add(Json.createObjectBuilder().add("primitives", Json.createArrayBuilder().add(primitive)));
+					templateIndices[i] = numMeshes++;
+				}
+				for (int i = 0; i < instances.length; i += 5) {
+					int template = (int)instances[i];
+					int mesh = template >= 0 && template < templateIndices.length ? templateIndices[template] : -1;
+					if (mesh < 0)
+						continue;
+					float a = (float)Math.toRadians(instances[i + 4]) / 2;
+					float[] translation = { instances[i + 1], instances[i + 2], instances[i + 3] };
+					float[] rotation = { 0, 0, (float)Math.sin(a), (float)Math.cos(a) };
+					nodes.add(Json.createObjectBuilder().add("mesh", mesh).add("translation", array(translation)).add("rotation", array(rotation)));
+					children.add(numNodes++);
+				}
+				if (textured)
+					writeImage(channel);
+			}
+			nodes.add(Json.createObjectBuilder().add("children", children).add("rotation", array(Z_UP)));
+
+			JsonObjectBuilder gltf = Json.createObjectBuilder();
+			JsonObjectBuilder asset = Json.createObjectBuilder().add("version", "2.0").add("generator", "demopolis");
+			if (environment != null)
+				asset.add("extras", Json.createObjectBuilder().add("environment", environment));
+			gltf.add("asset", asset);
+			gltf.add("scene", 0);
+			gltf.add("scenes", Json.createArrayBuilder().add(Json.createObjectBuilder().add("nodes", Json.createArrayBuilder().add(numNodes))));
+			gltf.add("nodes", nodes);
+			gltf.add("meshes", gltfMeshes);
+			gltf.add("materials", materials);
+			if (textured) {
+				gltf.add("samplers", Json.createArrayBuilder().add(Json.createObjectBuilder()));
+				gltf.add("textures", Json.createArrayBuilder().add(Json.createObjectBuilder().add("sampler", 0).add("source", 0)));
+				gltf.add("images", Json.createArrayBuilder().add(Json.createObjectBuilder().add("bufferView", numBufferViews - 1).add("mimeType", "image/png")));
+			}
+			gltf.add("accessors", accessors);
+			gltf.add("bufferViews", bufferViews);
+			gltf.add("buffers", Json.createArrayBuilder().add(Json.createObjectBuilder().add("byteLength", binLength)));
+
+			StringWriter json = new StringWriter();
+			try (JsonWriter writer = Json.createWriter(json)) {
+				writer.writeObject(gltf.build());
+			}
+			byte[] jsonBytes = json.toString().getBytes(StandardCharsets.UTF_8);
+			int jsonLength = align(jsonBytes.length);
+			long length = 12 + 8 + jsonLength + 8 + binLength;
+			if (length > 0xFFFFFFFFL)
+				throw new IOException("scene too large for glb: " + length);
+
+			ByteBuffer header = allocate(12 + 8 + jsonLength + 8);
+			header.putInt(MAGIC).putInt(VERSION).putInt((int)length);
+			header.putInt(jsonLength).putInt(CHUNK_JSON).put(jsonBytes);
+			while (header.position() < 20 + jsonLength)
+				header.put((byte)' ');
+			header.putInt((int)binLength).putInt(CHUNK_BIN);
+			header.flip();
+
+			Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE); FileChannel src = FileChannel.open(bin, StandardOpenOption.READ)) {
+				while (header.hasRemaining())
+					channel.write(header);
+				for (long position = 0; position < binLength;)
+					position += src.transferTo(position, binLength - position, channel);
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(bin);
+		}
+	}
+
+	// returns the primitive, or null if the mesh is not exportable
+	private JsonObjectBuilder writeMesh(FileChannel channel, IMesh mesh) throws IOException {
+		if (mesh.getType() != Primitive.TRIANGLES)
+			return null;
+		IGeometryAttribute[] attributes = mesh.getGeometry().getAttributes();
+		float[][] data = mesh.getTransformedGeometryData();
+		int n = SceneBuilder.getNumVertices(attributes, data);
+		if (n == 0)
+			return null;
+
+		// merge identical vertices (all attributes equal) into one indexed vertex
+		int[] sizes = new int[attributes.length];
+		int stride = 0;
+		for (int i = 0; i < attributes.length; ++i) {
+			sizes[i] = data[i].length / n;
+			stride += sizes[i];
+		}
+		// open addressing on vertex slots, so deduplication does not allocate per vertex
+		float[] values = new float[n * stride];
+		int[] table = new int[Integer.highestOneBit(n) << 2];
+		Arrays.fill(table, -1);
+		int mask = table.length - 1;
+		int[] indices = new int[n];
+		int m = 0;
+		for (int v = 0; v < n; ++v) {
+			int offset = m * stride;
+			for (int i = 0, k = offset; i < attributes.length; ++i) {
+				System.arraycopy(data[i], v * sizes[i], values, k, sizes[i]);
+				k += sizes[i];
+			}
+			int hash = 1;
+			for (int j = 0; j < stride; ++j)
+				hash = 31 * hash + Float.floatToIntBits(values[offset + j]);
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			int index = -1;
+			for (; table[slot] >= 0; slot = (slot + 1) & mask) {
+				if (equals(values, table[slot] * stride, offset, stride)) {
+					index = table[slot];
+					break;
+				}
+			}
+			if (index < 0) {
+				index = m++;
+				table[slot] = index;
+			}
+			indices[v] = index;
+		}
+
+		JsonObjectBuilder gltfAttributes = Json.createObjectBuilder();
+		for (int i = 0, k = 0; i < attributes.length; k += sizes[i], ++i) {
+			String name = getName(attributes[i]);
+			if (name == null)
+				continue;
+			boolean flip = attributes[i] == IGeometry.COLOR_MAP_ARRAY;
+			float[] min = new float[sizes[i]];
+			float[] max = new float[sizes[i]];
+			Arrays.fill(min, Float.POSITIVE_INFINITY);
+			Arrays.fill(max, Float.NEGATIVE_INFINITY);
+			ByteBuffer buffer = allocate(m * sizes[i] * 4);
+			for (int j = 0; j < m; ++j) {
+				for (int c = 0; c < sizes[i]; ++c) {
+					float f = values[j * stride + k + c];
+					// texture coordinates run top down in gltf
+					if (flip && c == 1)
+						f = 1 - f;
+					min[c] = Math.min(min[c], f);
+					max[c] = Math.max(max[c], f);
+					buffer.putFloat(f);
+				}
+			}
+			int view = writeBufferView(channel, buffer, buffer.capacity(), ARRAY_BUFFER);
+			JsonObjectBuilder accessor = Json.createObjectBuilder().add("bufferView", view).add("componentType", FLOAT).add("count", m).add("type", sizes[i] == 1 ? "SCALAR" : "VEC" + sizes[i]);
+			if (attributes[i] == IGeometry.POSITION_ARRAY)
+				accessor.add("min", array(min)).add("max", array(max));
+			accessors.add(accessor);
+			gltfAttributes.add(name, numAccessors++);
+		}
+
+		boolean small = m <= 0xFFFF;
+		ByteBuffer buffer = allocate(align(n * (small ? 2 : 4)));
+		for (int index : indices) {
+			if (small)
+				buffer.putShort((short)index);
+			else
+				buffer.putInt(index);
+		}
+		int view = writeBufferView(channel, buffer, n * (small ? 2 : 4), ELEMENT_ARRAY_BUFFER);
+		accessors.add(Json.createObjectBuilder().add("bufferView", view).add("componentType", small ? UNSIGNED_SHORT : UNSIGNED_INT).add("count", n).add("type", "SCALAR"));
+
+		return Json.createObjectBuilder()
+				.add("attributes", gltfAttributes)
+				.add("indices", numAccessors++)
+				.add("material", materialIndices.get(mesh.getMaterial()))
+				.add("mode", TRIANGLES);
+	}
+
+	private void writeImage(FileChannel channel) throws IOException {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		atlas.writePNG(png);
+		ByteBuffer buffer = allocate(align(png.size()));
+		buffer.put(png.toByteArray());
+		writeBufferView(channel, buffer, png.size(), 0);
+	}
+
+	// writes the whole (4 byte aligned) buffer, the view covers the first length bytes
+	private int writeBufferView(FileChannel channel, ByteBuffer buffer, int length, int target) throws IOException {
+		JsonObjectBuilder view = Json.createObjectBuilder().add("buffer", 0).add("byteOffset", binLength).add("byteLength", length);
+		if (target != 0)
+			view.add("target", target);
+		bufferViews.add(view);
+		buffer.rewind();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		binLength += buffer.capacity();
+		return numBufferViews++;
+	}
+
+	private void addMaterial(JsonArrayBuilder materials, IMesh mesh) {
+		IMaterial material = mesh.getMaterial();
+		if (materialIndices.containsKey(material))
+			return;
+		JsonObjectBuilder pbr = Json.createObjectBuilder().add("metallicFactor", 0).add("roughnessFactor", 1);
+		JsonObjectBuilder gltfMaterial = Json.createObjectBuilder();
+		if (material instanceof PolisMaterial) {
+			PolisMaterial m = (PolisMaterial)material;
+			RGB c = m.getDiffuse();
+			pbr.add("baseColorFactor", array(new float[] { c.r, c.g, c.b, m.getAlpha() }));
+			if (m.getAlpha() < 1)
+				gltfMaterial.add("alphaMode", "BLEND");
+		} else if (material instanceof MaskMaterial && atlas != null) {
+			pbr.add("baseColorTexture", Json.createObjectBuilder().add("index", 0));
+			gltfMaterial.add("alphaMode", "MASK");
+			textured = true;
+		}
+		gltfMaterial.add("pbrMetallicRoughness", pbr);
+		if (mesh.hasFlag(Flag.DONT_CULL_FACE))
+			gltfMaterial.add("doubleSided", true);
+		materials.add(gltfMaterial);
+		materialIndices.put(material, materialIndices.size());
+	}
+
+	private static boolean equals(float[] values, int a, int b, int length) {
+		for (int i = 0; i < length; ++i) {
+			if (Float.floatToIntBits(values[a + i]) != Float.floatToIntBits(values[b + i]))
+				return false;
+		}
+		return true;
+	}
+
+	private static String getName(IGeometryAttribute attribute) {
+		if (attribute == IGeometry.POSITION_ARRAY)
+			return "POSITION";
+		if (attribute == IGeometry.NORMAL_ARRAY)
+			return "NORMAL";
+		if (attribute == IGeometry.COLOR_ARRAY)
+			return "COLOR_0";
+		if (attribute == IGeometry.COLOR_MAP_ARRAY)
+			return "TEXCOORD_0";
+		return null;
+	}
+
+	private static JsonArrayBuilder array(float[] values) {
+		JsonArrayBuilder array = Json.createArrayBuilder();
+		for (float f : values)
+			array.add(f);
+		return array;
+	}
+
+	private static int align(int size) {
+		return (size + 3) & ~3;
+	}
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
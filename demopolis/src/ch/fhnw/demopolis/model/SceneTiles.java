@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.fhnw.demopolis.util.ViewCone;
+import ch.fhnw.ether.scene.IScene;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry;
+import ch.fhnw.ether.scene.mesh.geometry.IGeometry.IGeometryAttribute;
+import ch.fhnw.util.math.geometry.BoundingBox;
+
+// quadtree over the scenario bounds. triangles are merged per leaf tile (by centroid)
+// instead of into whole-scene meshes, so tiles outside the view can be culled. the
+// tree is traversed top down, invisible nodes cull their whole subtree.
+public final class SceneTiles {
+	private static final class Node {
+		final float minX;
+		final float minY;
+		final float maxX;
+		final float maxY;
+		final Node[] children;
+		final SceneBuilder builder;
+		BoundingBox bounds;
+		List<IMesh> meshes = Collections.emptyList();
+		boolean visible;
+
+		Node(float minX, float minY, float maxX, float maxY, float tileSize) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			if (Math.max(maxX - minX, maxY - minY) > tileSize) {
+				float cx = (minX + maxX) / 2;
+				float cy = (minY + maxY) / 2;
+				children = new Node[] {
+					new Node(minX, minY, cx, cy, tileSize),
+					new Node(cx, minY, maxX, cy, tileSize),
+					new Node(minX, cy, cx, maxY, tileSize),
+					new Node(cx, cy, maxX, maxY, tileSize)
+				};
+				builder = null;
+			} else {
+				children = null;
+				builder = new SceneBuilder();
+			}
+		}
+
+		Node find(float x, float y) {
+			if (children == null)
+				return this;
+			float cx = (minX + maxX) / 2;
+			float cy = (minY + maxY) / 2;
+			return children[(x < cx ? 0 : 1) + (y < cy ? 0 : 2)].find(x, y);
+		}
+
+		void build() {
+			bounds = new BoundingBox();
+			if (children == null) {
+				meshes = builder.build();
+				meshes.forEach(m -> bounds.add(m.getBounds()));
+			} else {
+				for (Node child : children) {
+					child.build();
+					if (child.bounds.isValid())
+						bounds.add(child.bounds);
+				}
+			}
+		}
+
+		void update(ViewCone cone, boolean parentVisible, List<IMesh> removed, List<IMesh> added) {
+			boolean v = parentVisible && (cone == null || cone.intersects(bounds));
+			if (children == null) {
+				if (v != visible) {
+					(v ? added : removed).addAll(meshes);
+					visible = v;
+				}
+			} else {
+				for (Node child : children)
+					child.update(cone, v, removed, added);
+			}
+		}
+
+		void collect(List<IMesh> result) {
+			if (children == null) {
+				result.addAll(meshes);
+			} else {
+				for (Node child : children)
+					child.collect(result);
+			}
+		}
+
+		int count() {
+			if (children == null)
+				return meshes.isEmpty() ? 0 : 1;
+			int n = 0;
+			for (Node child : children)
+				n += child.count();
+			return n;
+		}
+	}
+
+	private final Node root;
+
+	public SceneTiles(BoundingBox bounds, float tileSize) {
+		root = new Node(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), tileSize);
+	}
+
+	// splits triangle meshes into the tiles, other primitives are added by their center
+	public void add(IMesh mesh) {
+		float[][] data = mesh.getTransformedGeometryData();
+		IGeometryAttribute[] attributes = mesh.getGeometry().getAttributes();
+		float[] positions = null;
+		for (int i = 0; i < attributes.length; ++i) {
+			if (attributes[i] == IGeometry.POSITION_ARRAY)
+				positions = data[i];
+		}
+		if (positions == null)
+			throw new IllegalArgumentException("geometry without positions");
+
+		if (mesh.getType() != Primitive.TRIANGLES) {
+			BoundingBox b = new BoundingBox();
+			b.add(positions);
+			root.find(b.getCenterX(), b.getCenterY()).builder.add(mesh, data, 0, positions.length / 3);
+			return;
+		}
+
+		// consecutive triangles in the same tile are appended as one range
+		Node current = null;
+		int first = 0;
+		int n = positions.length / 9;
+		for (int t = 0; t < n; ++t) {
+			int o = 9 * t;
+			float x = (positions[o] + positions[o + 3] + positions[o + 6]) / 3;
+			float y = (positions[o + 1] + positions[o + 4] + positions[o + 7]) / 3;
+			Node node = root.find(x, y);
+			if (node != current) {
+				if (current != null)
+					current.builder.add(mesh, data, 3 * first, 3 * (t - first));
+				current = node;
+				first = t;
+			}
+		}
+		if (current != null)
+			current.builder.add(mesh, data, 3 * first, 3 * (n - first));
+	}
+
+	public void addAll(List<IMesh> meshes) {
+		meshes.forEach(this::add);
+	}
+
+	public void build() {
+		root.build();
+		System.out.println("scene tiles: " + root.count() + " non-empty tiles");
+	}
+
+	// all merged meshes (after build), regardless of visibility
+	public List<IMesh> getMeshes() {
+		List<IMesh> meshes = new ArrayList<>();
+		root.collect(meshes);
+		return meshes;
+	}
+
+	// shows all tiles, e.g. for the orthographic top view
+	public void show(IScene scene) {
+		update(scene, null);
+	}
+
+	// shows only the tiles intersecting the view cone
+	public void update(IScene scene, ViewCone cone) {
+		List<IMesh> removed = new ArrayList<>();
+		List<IMesh> added = new ArrayList<>();
+		root.update(cone, true, removed, added);
+		if (!removed.isEmpty())
+			scene.remove3DObjects(removed);
+		if (!added.isEmpty())
+			scene.add3DObjects(added);
+	}
+
+	public void removeFromScene(IScene scene) {
+		List<IMesh> removed = new ArrayList<>();
+		root.update(null, false, removed, new ArrayList<>());
+		if (!removed.isEmpty())
+			scene.remove3DObjects(removed);
+	}
+}
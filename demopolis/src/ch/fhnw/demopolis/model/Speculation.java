@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import ch.fhnw.demopolis.model.entities.BuildingBlock;
+import ch.fhnw.demopolis.model.entities.IDesignEntity;
+
+// speculative background generation of entities that cannot change anymore in later
+// design steps. results go to the generation cache, so the final pass only generates
+// what is left (i.e. open spaces) and picks up the speculated results by fingerprint.
+public final class Speculation {
+	private final boolean finalHeights;
+	private final Map<IDesignEntity, Long> fingerprints = new IdentityHashMap<>();
+	private final CompletableFuture<Void> future;
+	private volatile boolean cancelled;
+
+	Speculation(Model model, List<IDesignEntity> entities, boolean finalHeights) {
+		this.finalHeights = finalHeights;
+		this.future = CompletableFuture.runAsync(() -> run(model, entities));
+	}
+
+	// waits for the speculation to finish, returns false if it was cancelled or failed
+	public boolean await() {
+		try {
+			future.join();
+			return !cancelled;
+		} catch (Exception e) {
+			System.err.println("speculative generation failed: " + e);
+			return false;
+		}
+	}
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	// true if building heights were finalized and no building changed since (call after await)
+	public synchronized boolean hasValidFinalHeights(List<IDesignEntity> entities) {
+		if (!finalHeights || cancelled)
+			return false;
+		for (IDesignEntity entity : entities) {
+			if (!(entity instanceof BuildingBlock))
+				continue;
+			Long fingerprint = fingerprints.get(entity);
+			if (fingerprint == null || fingerprint != entity.getFingerprint())
+				return false;
+		}
+		return true;
+	}
+
+	private void run(Model model, List<IDesignEntity> entities) {
+		long time = System.nanoTime();
+		if (finalHeights)
+			BuildingBlock.setFinalBuildingHeights(BuildingBlock.getBuildings(entities), model.getSeed());
+
+		List<GenerationContext> contexts = Generator.generateContexts(model, entities, () -> cancelled);
+		if (cancelled)
+			return;
+
+		model.getGenerationCache().add(contexts);
+		synchronized (this) {
+			for (int i = 0; i < entities.size(); ++i)
+				fingerprints.put(entities.get(i), contexts.get(i).getFingerprint());
+		}
+		System.out.println("speculative generation: " + entities.size() + " entities in " + (System.nanoTime() - time) / 1000000 + "ms");
+	}
+}
@@ -33,54 +33,92 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.I3DConfig;
-import ch.fhnw.ether.formats.obj.ObjReader;
+import ch.fhnw.demopolis.util.ViewCone;
 import ch.fhnw.ether.scene.IScene;
 import ch.fhnw.ether.scene.mesh.IMesh;
-import ch.fhnw.ether.scene.mesh.MeshUtilities;
 import ch.fhnw.ether.scene.mesh.material.IMaterial;
 import ch.fhnw.util.math.Vec3;
 
 public class StaticEnvironment {
-	private IMesh ground;
-	private IMesh water;
-	private IMesh blocks;
-	private IMesh green;
-	private IMesh buildings;
-	private IMesh train;
+	public static final int NUM_LAYERS = 6;
+
+	private final MeshData[] layers = new MeshData[NUM_LAYERS];
+
+	private SceneTiles tiles;
 	
 	public StaticEnvironment() {
 	}
 
 	public void load(Model model) throws IOException {
-		IScenario scenario = model.getScenario();
+		String[][] assets = getLayerAssets(model.getScenario());
+		MeshData[] layers = new MeshData[NUM_LAYERS];
+		for (int i = 0; i < NUM_LAYERS; ++i) {
+			List<MeshData> data = new ArrayList<>();
+			for (String asset : assets[i])
+				data.add(AssetRegistry.getMesh(asset));
+			layers[i] = MeshData.merge(data);
+		}
+		load(model, layers);
+	}
+
+	// loads from already merged layer data, e.g. from a snapshot
+	public void load(Model model, MeshData[] layers) {
+		if (layers.length != NUM_LAYERS)
+			throw new IllegalArgumentException("invalid number of layers: " + layers.length);
+		System.arraycopy(layers, 0, this.layers, 0, NUM_LAYERS);
+
 		Materials materials = model.getMaterials();
-		ground = getMesh(scenario.getStaticGround(), materials.groundMaterial);
-		water = getMesh(scenario.getStaticWater(), materials.waterMaterial);
-		blocks = getMesh(scenario.getStaticBlocks(), materials.blockMaterial);
-		green = getMesh(scenario.getStaticGreen(), materials.greenMaterial);
-		buildings = getMesh(scenario.getStaticBuildings(), materials.buildingMaterial);
-		train = getMesh(scenario.getStaticTrain(), materials.trainMaterial);
+		IMesh ground = getMesh(layers[0], materials.groundMaterial);
+		IMesh water = getMesh(layers[1], materials.waterMaterial);
+		IMesh blocks = getMesh(layers[2], materials.blockMaterial);
+		IMesh green = getMesh(layers[3], materials.greenMaterial);
+		IMesh buildings = getMesh(layers[4], materials.buildingMaterial);
+		IMesh train = getMesh(layers[5], materials.trainMaterial);
 
 		blocks.setPosition(new Vec3(0, 0, I3DConfig.LAYER_1));
 		green.setPosition(new Vec3(0, 0, I3DConfig.LAYER_2));
+
+		// split the layers into spatial tiles, so they can be culled during fly-through
+		tiles = new SceneTiles(model.getScenario().getBounds(), I3DConfig.CULL_TILE_SIZE);
+		for (IMesh mesh : new IMesh[] { ground, water, blocks, green, buildings, train })
+			tiles.add(mesh);
+		tiles.build();
+	}
+	
+	public MeshData[] getLayers() {
+		return layers.clone();
+	}
+	
+	public List<IMesh> getMeshes() {
+		return tiles.getMeshes();
 	}
 	
 	public void addToScene(IScene scene) {
-		scene.add3DObjects(ground, water, blocks, green, buildings, train);		
+		tiles.show(scene);
+	}
+	
+	public void updateVisibility(IScene scene, ViewCone cone) {
+		tiles.update(scene, cone);
 	}
 	
 	public void removeFromScene(IScene scene) {
-		scene.remove3DObjects(ground, water, blocks, green, buildings, train);		
+		tiles.removeFromScene(scene);
+	}
+	
+	public static String[][] getLayerAssets(IScenario scenario) {
+		return new String[][] {
+			scenario.getStaticGround(),
+			scenario.getStaticWater(),
+			scenario.getStaticBlocks(),
+			scenario.getStaticGreen(),
+			scenario.getStaticBuildings(),
+			scenario.getStaticTrain(),
+		};
 	}
 		
-	private static IMesh getMesh(String[] assets, IMaterial material) throws IOException {
-		List<IMesh> meshes = new ArrayList<>();
-		for (String asset : assets) {
-			meshes.addAll(new ObjReader(Asset.get(asset), ObjReader.Options.CONVERT_TO_Z_UP).getMeshes(material));
-		}
-		meshes = MeshUtilities.mergeMeshes(meshes);
+	private static IMesh getMesh(MeshData data, IMaterial material) {
+		List<IMesh> meshes = data.createMeshes(material);
 		if (meshes.size() != 1)
 			throw new IllegalArgumentException("cannot merge meshes into a single mesh");
 		return meshes.get(0);
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.fhnw.ether.scene.mesh.DefaultMesh;
+import ch.fhnw.ether.scene.mesh.IMesh;
+import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
+import ch.fhnw.ether.scene.mesh.MeshUtilities;
+import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
+import ch.fhnw.ether.scene.mesh.material.IMaterial;
+import ch.fhnw.util.FloatList;
+import ch.fhnw.util.math.geometry.GeodesicSphere;
+
+// instanced shrubs and trees: one shared dome and trunk template, instances are recorded
+// as (x, y, z, sx, sy, sz) and baked into a single mesh per material.
+public final class Vegetation {
+	private static final int STRIDE = 6;
+	private static final int TRUNK_SEGMENTS = 6;
+
+	private static final float[] DOME = new GeodesicSphere(1).getTriangles();
+	private static final float[] OCTAHEDRON = createOctahedron();
+	private static float[] trunk;
+
+	private final FloatList shrubs = new FloatList();
+	private final FloatList crowns = new FloatList();
+	private final FloatList trunks = new FloatList();
+
+	public void addShrub(float x, float y, float z, float size) {
+		add(shrubs, x, y, z, size, size, size);
+	}
+
+	public void addCrown(float x, float y, float z, float width, float height) {
+		add(crowns, x, y, z, width, width, height);
+	}
+
+	public void addTrunk(float x, float y, float z, float width, float height) {
+		add(trunks, x, y, z, width, width, height);
+	}
+
+	public boolean isEmpty() {
+		return shrubs.isEmpty() && crowns.isEmpty() && trunks.isEmpty();
+	}
+
+	public List<IMesh> bake(Materials materials) {
+		List<IMesh> meshes = new ArrayList<>(3);
+		bake(meshes, materials.shrubMaterial, DOME, shrubs);
+		bake(meshes, materials.treeMaterial, DOME, crowns);
+		bake(meshes, materials.trunkMaterial, getTrunk(materials), trunks);
+		return meshes;
+	}
+
+	// simplified version for distant views: low poly crowns only
+	public List<IMesh> bakeFar(Materials materials) {
+		List<IMesh> meshes = new ArrayList<>(1);
+		bake(meshes, materials.treeMaterial, OCTAHEDRON, crowns);
+		return meshes;
+	}
+
+	private static void add(FloatList instances, float x, float y, float z, float sx, float sy, float sz) {
+		instances.add(x);
+		instances.add(y);
+		instances.add(z);
+		instances.add(sx);
+		instances.add(sy);
+		instances.add(sz);
+	}
+
+	private static void bake(List<IMesh> meshes, IMaterial material, float[] template, FloatList instances) {
+		if (instances.isEmpty())
+			return;
+		float[] data = instances.toArray();
+		int n = instances.size() / STRIDE;
+		float[] triangles = new float[n * template.length];
+		int k = 0;
+		for (int i = 0; i < n; ++i) {
+			int o = i * STRIDE;
+			float x = data[o];
+			float y = data[o + 1];
+			float z = data[o + 2];
+			float sx = data[o + 3];
+			float sy = data[o + 4];
+			float sz = data[o + 5];
+			for (int j = 0; j < template.length; j += 3) {
+				triangles[k++] = template[j] * sx + x;
+				triangles[k++] = template[j + 1] * sy + y;
+				triangles[k++] = template[j + 2] * sz + z;
+			}
+		}
+		meshes.add(new DefaultMesh(Primitive.TRIANGLES, material, DefaultGeometry.createVN(triangles, null)));
+	}
+
+	private static float[] createOctahedron() {
+		float[][] v = { { 1, 0, 0 }, { 0, 1, 0 }, { -1, 0, 0 }, { 0, -1, 0 } };
+		float[] triangles = new float[8 * 9];
+		int k = 0;
+		for (int i = 0; i < 4; ++i) {
+			float[] v0 = v[i];
+			float[] v1 = v[(i + 1) % 4];
+			for (float z : new float[] { 1, -1 }) {
+				float[] a = z > 0 ? v0 : v1;
+				float[] b = z > 0 ? v1 : v0;
+				triangles[k++] = a[0];
+				triangles[k++] = a[1];
+				triangles[k++] = 0;
+				triangles[k++] = b[0];
+				triangles[k++] = b[1];
+				triangles[k++] = 0;
+				triangles[k++] = 0;
+				triangles[k++] = 0;
+				triangles[k++] = z;
+			}
+		}
+		return triangles;
+	}
+
+	private static synchronized float[] getTrunk(Materials materials) {
+		if (trunk == null)
+			trunk = MeshUtilities.createCylinder(materials.trunkMaterial, TRUNK_SEGMENTS, false).getTransformedPositionData();
+		return trunk;
+	}
+}
@@ -29,6 +29,7 @@
 
 package ch.fhnw.demopolis.model.entities;
 
+import ch.fhnw.demopolis.util.Fingerprint;
 import ch.fhnw.util.math.geometry.Polygon;
 
 public abstract class AbstractDesignEntity implements IDesignEntity {
@@ -66,6 +67,15 @@ public abstract class AbstractDesignEntity implements IDesignEntity {
 		return getShapes().get(0);
 	}
 	
+	@Override
+	public final ShapeGeometry getShapeGeometry() {
+		return getShapeGeometries().get(0);
+	}
+	
+	protected Fingerprint fingerprint() {
+		return new Fingerprint().add(getClass().getName()).add(type).add(asset).add(id);
+	}
+	
 	@Override
 	public String toString() {
 		return type + " " + getAsset();
@@ -35,7 +35,7 @@ import java.util.List;
 import ch.fhnw.demopolis.config.I3DColors;
 import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.IUIColors;
-import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.GenerationContext;
 import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
 import ch.fhnw.demopolis.render.PolisMaterial;
 import ch.fhnw.ether.scene.mesh.IMesh;
@@ -71,21 +71,21 @@ public final class Block extends AbstractDesignEntity {
 	private BlockType blockType;
 
 	private final PolisMaterial material;
-	private final Polygon shape;
+	private final ShapeGeometry shape;
 	private IMesh mesh;
 
 	public Block(IDesignEntity entity) {
 		super(entity);
 		blockType = BlockType.LEAVE_AS_IS;
 		material = new PolisMaterial(I3DColors.AMBIENT_LO, blockType.designColor);
-		shape = entity.getShape();
+		shape = entity.getShapeGeometry();
 	}
 	
 	public Block(IDesignEntity entity, Building building) {
 		super(Type.BLOCK, building.getId(), entity.getId());
 		blockType = BlockType.OPEN_SPACE;
 		material = new PolisMaterial(I3DColors.AMBIENT_LO, blockType.designColor);
-		shape = building.getLot();
+		shape = building.getLotGeometry();
 	}
 	
 	public BlockType getBlockType() {
@@ -99,6 +99,11 @@ public final class Block extends AbstractDesignEntity {
 	
 	@Override
 	public List<Polygon> getShapes() {
+		return Collections.singletonList(shape.getPolygon());
+	}
+
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
 		return Collections.singletonList(shape);
 	}
 		
@@ -110,13 +115,18 @@ public final class Block extends AbstractDesignEntity {
 		return Collections.singletonList(mesh);
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return fingerprint().add(blockType).add(shape.getPolygon()).get();
+	}
+	
 	@Override
 	public void fade(float amount) {
 		material.setDiffuse(blockType.designColor.scaleRGB(amount * I3DColors.DIM));
 	}
 
 	@Override
-	public List<IMesh> generate(Model model) {
-		return Collections.singletonList(IDesignEntity.createMesh(model.getMaterials().blockMaterial, shape, I3DConfig.LAYER_1));
+	public List<IMesh> generate(GenerationContext context) {
+		return Collections.singletonList(IDesignEntity.createMesh(context.getMaterials().blockMaterial, shape, I3DConfig.LAYER_1));
 	}
 }
@@ -37,10 +37,13 @@ import java.util.function.Function;
 import ch.fhnw.demopolis.config.I3DColors;
 import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.IUIColors;
+import ch.fhnw.demopolis.model.GenerationContext;
 import ch.fhnw.demopolis.model.Materials;
-import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.Block.BlockType;
 import ch.fhnw.demopolis.render.PolisMaterial;
+import ch.fhnw.demopolis.util.Fingerprint;
+import ch.fhnw.demopolis.util.KdTree;
+import ch.fhnw.demopolis.util.SeededRandom;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
@@ -48,7 +51,6 @@ import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
 import ch.fhnw.util.FloatList;
 import ch.fhnw.util.Pair;
 import ch.fhnw.util.color.RGB;
-import ch.fhnw.util.math.MathUtilities;
 import ch.fhnw.util.math.Vec3;
 import ch.fhnw.util.math.geometry.Basis;
 import ch.fhnw.util.math.geometry.Line;
@@ -239,6 +241,7 @@ public final class BuildingBlock extends AbstractDesignEntity {
 	}
 	
 	public static class Building {
+		private final ShapeGeometry lotGeometry;
 		private final Polygon lot;
 		private final String id;
 		private final List<Polygon> plan;
@@ -257,7 +260,12 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		private float finalHeight;
 		
 		public Building(Polygon lot, String id, BuildingType type) {
-			this.lot = lot;
+			this(new ShapeGeometry(lot), id, type);
+		}
+		
+		public Building(ShapeGeometry lot, String id, BuildingType type) {
+			this.lotGeometry = lot;
+			this.lot = lot.getPolygon();
 			this.id = id;
 			this.plan = createPlan(lot, type);
 			this.type = type;
@@ -272,6 +280,10 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			return lot;
 		}
 		
+		public ShapeGeometry getLotGeometry() {
+			return lotGeometry;
+		}
+		
 		public String getId() {
 			return id;
 		}
@@ -283,7 +295,7 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		public List<IMesh> getMeshes() {
 			if (meshes == null) {
 				meshes = new ArrayList<>();
-				meshes.add(IDesignEntity.createMesh(lotMaterial, lot, I3DConfig.LAYER_1));
+				meshes.add(IDesignEntity.createMesh(lotMaterial, lotGeometry, I3DConfig.LAYER_1));
 				for (Polygon p : plan)
 					meshes.add(IDesignEntity.createMesh(buildingMaterial, p, I3DConfig.LAYER_2));
 			}
@@ -358,12 +370,12 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		}		
 	}
 
-	private final Polygon shape;
+	private final ShapeGeometry shape;
 	private final List<Building> buildings = new ArrayList<>();
 
 	public BuildingBlock(IDesignEntity entity) {
 		super(entity);
-		shape = entity.getShape();
+		shape = entity.getShapeGeometry();
 		buildings.add(new Building(shape, getAsset(), BuildingType.NO_BUILDING));
 	}
 	
@@ -378,6 +390,11 @@ public final class BuildingBlock extends AbstractDesignEntity {
 
 	@Override
 	public List<Polygon> getShapes() {
+		return Collections.singletonList(shape.getPolygon());
+	}
+
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
 		return Collections.singletonList(shape);
 	}
 		
@@ -388,6 +405,14 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return meshes;
 	}
 	
+	@Override
+	public long getFingerprint() {
+		Fingerprint f = fingerprint();
+		for (Building b : buildings)
+			f.add(b.lot).add(b.type).add(b.height).add(b.line).add(b.setback).add(b.use).add(b.finalHeight);
+		return f.get();
+	}
+	
 	@Override
 	public void fade(float amount) {
 		buildings.forEach(b -> {
@@ -399,9 +424,9 @@ public final class BuildingBlock extends AbstractDesignEntity {
 	}
 	
 	@Override
-	public List<IMesh> generate(Model model) {
+	public List<IMesh> generate(GenerationContext context) {
 		List<IMesh> meshes = new ArrayList<>();
-		buildings.forEach(b -> meshes.addAll(b.generate(model.getMaterials())));
+		buildings.forEach(b -> meshes.addAll(b.generate(context.getMaterials())));
 		return meshes;
 	}
 	
@@ -417,8 +442,8 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		Vec3 v0 = b.lot.get(0);
 		Vec3 u = b.lot.getU();
 		Vec3 v = b.lot.getV();
-		float eu = b.lot.getExtentU();
-		float ev = b.lot.getExtentV();
+		float eu = b.lotGeometry.getExtentU();
+		float ev = b.lotGeometry.getExtentV();
 
 		Plane plane0 = null;
 		Plane plane1 = null;
@@ -452,7 +477,7 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		}
 
 		if (plane0 == null) {
-			bs.add(new Building(b.lot, b.id, type));
+			bs.add(new Building(b.lotGeometry, b.id, type));
 		} else {
 			try {
 				Pair<Polygon, Polygon> split0 = b.lot.split(plane0);
@@ -462,7 +487,7 @@ public final class BuildingBlock extends AbstractDesignEntity {
 				bs.add(new Building(split1.second, second, type));
 			} catch (Exception e) {
 				// revert in case where split goes wrong
-				bs.add(new Building(b.lot, b.id, type));
+				bs.add(new Building(b.lotGeometry, b.id, type));
 			}
 		}
 
@@ -492,47 +517,59 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return null;
 	}
 	
-	public static void setFinalBuildingHeights(List<Building> buildings) {
-		// TODO: warning - the current implementation doesn't scale for many buildings...
-		for (Building b0 : buildings) {
-			if (b0.getPlan().isEmpty())
+	public static List<Building> getBuildings(List<IDesignEntity> entities) {
+		List<Building> buildings = new ArrayList<>();
+		for (IDesignEntity entity : entities) {
+			if (!(entity instanceof BuildingBlock))
 				continue;
+			for (Building building : ((BuildingBlock)entity).getBuildings()) {
+				if (building.getType() != BuildingType.NO_BUILDING)
+					buildings.add(building);
+			}
+		}
+		return buildings;
+	}
+	
+	public static void setFinalBuildingHeights(List<Building> buildings, long seed) {
+		List<Building> planned = new ArrayList<>();
+		for (Building b : buildings) {
+			if (!b.getPlan().isEmpty())
+				planned.add(b);
+		}
+		float[] distances = getNearestDistances(planned);
 
+		for (int i = 0; i < planned.size(); ++i) {
+			Building b0 = planned.get(i);
 			BuildingHeight h0 = b0.getHeight();
+			// height variation is seeded per building, so unchanged designs keep their heights
+			SeededRandom random = new SeededRandom(new Fingerprint().add(seed).add(b0.id).add(b0.lot).add(b0.type).add(h0).get());
 			if (h0 == BuildingHeight.BERLIN_BLOCK) {
 				b0.setFinalHeight(h0.maxHeight);
 				continue;
 			}
 			if (h0 == BuildingHeight.ONE_STOREY || h0 == BuildingHeight.TWO_STOREY) {
-				b0.setFinalHeight(getHeight(h0.maxHeight));
+				b0.setFinalHeight(getHeight(random, h0.maxHeight));
 				continue;
 			}
 				
-			float height = h0.maxHeight;
-			Vec3 c0 = getCenter(b0.getPlan());
-			for (Building b1 : buildings) {
-				if (b0 == b1 || b1.getPlan().isEmpty())
-					continue;
-				Vec3 c1 = getCenter(b1.getPlan());
-				float d = c1.distance(c0);
-				height = Math.min(height, d * HEIGHT_DISTANCE_RATIO);
-			}
-			height = getHeight(Math.max(height, HEIGHT_ONE_STOREY));
+			float height = Math.min(h0.maxHeight, distances[i] * HEIGHT_DISTANCE_RATIO);
+			height = getHeight(random, Math.max(height, HEIGHT_ONE_STOREY));
 			b0.setFinalHeight(height);
 		}
 	}
 	
 	
-	private static final FloatList TRI = new FloatList();
+	// scratch buffer, one per generator thread
+	private static final ThreadLocal<FloatList> TRI = ThreadLocal.withInitial(FloatList::new);
 
 	private static List<IMesh> generateBuilding(Materials materials, Building building) {
 		List<IMesh> meshes = new ArrayList<>();
 
 		// add lot
-		meshes.add(IDesignEntity.createMesh(materials.blockMaterial, building.lot, I3DConfig.LAYER_1));
+		meshes.add(IDesignEntity.createMesh(materials.blockMaterial, building.lotGeometry, I3DConfig.LAYER_1));
 		
 		// calculate building line
-		Polygon lot = building.getLot().offset(building.getLine().distance);
+		ShapeGeometry lot = building.getLotGeometry().getOffset(building.getLine().distance);
 		if (lot == null)
 			return meshes;
 		
@@ -542,14 +579,15 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			return meshes;
 		
 		// generate building triangles
-		TRI.clear();
+		FloatList tri = TRI.get();
+		tri.clear();
 		switch (building.getType()) {
 		case NO_BUILDING:
 			break;
 		case PERIMETER: {
 			for (Polygon p : plan) {
 				for (Polygon e : p.extrude(building.finalHeight, false, true))
-					TRI.addAll(e.getTriangleVertices());
+					tri.addAll(e.getTriangleVertices());
 			}
 			break;
 		}
@@ -559,31 +597,31 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			if (building.getSetback() == BuildingSetback.NO_SETBACK) {
 				for (Polygon p : plan) {
 					for (Polygon e : p.extrude(building.finalHeight, false, true))
-						TRI.addAll(e.getTriangleVertices());
+						tri.addAll(e.getTriangleVertices());
 				}
 			} else {
 				for (Polygon p : plan) {
 					Pair<Polygon, Polygon> split = p.split(0, p.getExtentV() * SETBACK_RATIO);
 					if (split.first != null) {
 						for (Polygon e : split.first.extrude(building.finalHeight / 2, false, true))
-							TRI.addAll(e.getTriangleVertices());
+							tri.addAll(e.getTriangleVertices());
 					}
 					if (split.second != null) {
 						for (Polygon e : split.second.extrude(building.finalHeight, false, true))
-							TRI.addAll(e.getTriangleVertices());
+							tri.addAll(e.getTriangleVertices());
 					}
 				}				
 			}
 			break;
 		}
 		}
-		if (!TRI.isEmpty())
-			meshes.add(new DefaultMesh(Primitive.TRIANGLES, materials.buildingMaterial, DefaultGeometry.createVN(TRI.toArray(), null)));
+		if (!tri.isEmpty())
+			meshes.add(new DefaultMesh(Primitive.TRIANGLES, materials.buildingMaterial, DefaultGeometry.createVN(tri.toArray(), null)));
 		return meshes;		
 	}
 	
 	
-	private static List<Polygon> createPlan(Polygon lot, BuildingType type) {
+	private static List<Polygon> createPlan(ShapeGeometry lot, BuildingType type) {
 		switch (type) {
 		case NO_BUILDING:
 			return Collections.emptyList();
@@ -595,13 +633,13 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			return asList(createOffsetPolygon(lot, depth));
 		}
 		case PARALLEL: {
-			Polygon inner = createInnerRectangle(lot);
+			ShapeGeometry inner = getInnerRectangle(lot);
 			if (inner == null)
 				return Collections.emptyList();
 
 			List<Polygon> plan = new ArrayList<>();
 			Basis basis = inner.getBasis();
-			Polygon xy = inner.transform(basis.getUVWToXYZTransform());
+			ShapeGeometry xy = getInnerRectangleXY(inner);
 			float u = xy.getExtentU();
 			float v = xy.getExtentV();
 			float l = Math.min(u, MAX_SLAB_LENGTH);
@@ -619,12 +657,12 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			return plan;
 		}
 		case RECTANGULAR: {
-			Polygon inner = createInnerRectangle(lot);
+			ShapeGeometry inner = getInnerRectangle(lot);
 			if (inner == null)
 				return Collections.emptyList();
 
 			Basis basis = inner.getBasis();
-			Polygon xy = inner.transform(basis.getUVWToXYZTransform());
+			ShapeGeometry xy = getInnerRectangleXY(inner);
 			float u = xy.getExtentU();
 			float v = xy.getExtentV();
 			float umin = u - 2 * MIN_RECT_SETBACK;
@@ -641,12 +679,12 @@ public final class BuildingBlock extends AbstractDesignEntity {
 			return asList(rect.transform(basis.getXYZToUVWTransform()));
 		}
 		case POINT: {
-			Polygon inner = createInnerRectangle(lot);
+			ShapeGeometry inner = getInnerRectangle(lot);
 			if (inner == null)
 				return Collections.emptyList();
 
 			Basis basis = inner.getBasis();
-			Polygon xy = inner.transform(basis.getUVWToXYZTransform());
+			ShapeGeometry xy = getInnerRectangleXY(inner);
 			float u = xy.getExtentU();
 			float v = xy.getExtentV();
 			float min = Math.min(u, v) - 2 * MIN_POINT_SETBACK;
@@ -668,11 +706,12 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return Collections.singletonList(polygon);
 	}
 	
-	private static Polygon createOffsetPolygon(Polygon outer, float offset) {
-		if (!outer.isConvex())
+	private static Polygon createOffsetPolygon(ShapeGeometry geometry, float offset) {
+		if (!geometry.isConvex())
 			throw new IllegalArgumentException("polygon must be convex");
 
-		Polygon inner = outer.offset(offset);
+		Polygon outer = geometry.getPolygon();
+		Polygon inner = geometry.getOffsetPolygon(offset);
 		if (inner == null)
 			return outer;
 		
@@ -687,6 +726,17 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return new Polygon(v);
 	}
 	
+	private static ShapeGeometry getInnerRectangle(ShapeGeometry lot) {
+		return lot.derive("inner", p -> {
+			Polygon inner = createInnerRectangle(p);
+			return inner != null ? new ShapeGeometry(inner) : null;
+		});
+	}
+	
+	private static ShapeGeometry getInnerRectangleXY(ShapeGeometry inner) {
+		return inner.derive("xy", p -> new ShapeGeometry(p.transform(inner.getBasis().getUVWToXYZTransform())));
+	}
+	
 	private static Polygon createInnerRectangle(Polygon outer) {
 		Vec3 v = outer.getV().scale(outer.getExtentV());
 		Vec3 v0 = outer.get(0);
@@ -708,6 +758,29 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return null;
 	}
 
+	// distance from the plan center of each building to the nearest other one (buildings must
+	// have a plan). centers are indexed once, each query is then log(n).
+	public static float[] getNearestDistances(List<Building> buildings) {
+		float[] centers = getCenters(buildings);
+		KdTree tree = new KdTree(centers);
+		float[] distances = new float[buildings.size()];
+		for (int i = 0; i < distances.length; ++i)
+			distances[i] = tree.nearestDistance(i);
+		return distances;
+	}
+
+	// plan centers of the buildings as xyz triples
+	public static float[] getCenters(List<Building> buildings) {
+		float[] centers = new float[3 * buildings.size()];
+		for (int i = 0; i < buildings.size(); ++i) {
+			Vec3 c = getCenter(buildings.get(i).getPlan());
+			centers[3 * i] = c.x;
+			centers[3 * i + 1] = c.y;
+			centers[3 * i + 2] = c.z;
+		}
+		return centers;
+	}
+
 	private static Vec3 getCenter(List<Polygon> plan) {
 		Vec3 v = Vec3.ZERO;
 		for (Polygon p : plan)
@@ -716,8 +789,8 @@ public final class BuildingBlock extends AbstractDesignEntity {
 		return v;
 	}
 	
-	private static float getHeight(float height) {
+	private static float getHeight(SeededRandom random, float height) {
 		float v = 0.5f * HEIGHT_VARIATION;
-		return MathUtilities.random(height - v, height + v);
+		return random.random(height - v, height + v);
 	}
 }
@@ -32,7 +32,7 @@ package ch.fhnw.demopolis.model.entities;
 import java.util.ArrayList;
 import java.util.List;
 
-import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.GenerationContext;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
@@ -63,11 +63,22 @@ public interface IDesignEntity {
 
 	List<Polygon> getShapes();
 
+	ShapeGeometry getShapeGeometry();
+
+	List<ShapeGeometry> getShapeGeometries();
+
 	List<IMesh> getMeshes();
 	
 	void fade(float amount);
 	
-	List<IMesh> generate(Model model);
+	List<IMesh> generate(GenerationContext context);
+	
+	// fingerprint of everything generate() depends on (design parameters and shape)
+	long getFingerprint();
+	
+	// called instead of generate() when a previous result with the same fingerprint is reused
+	default void restore(GenerationContext context) {
+	}
 
 	static List<IMesh> getMeshes(List<IDesignEntity> entities) {
 		List<IMesh> meshes = new ArrayList<>();
@@ -88,4 +99,16 @@ public interface IDesignEntity {
 		mesh.setPosition(new Vec3(0, 0, offset));
 		return mesh;
 	}
+
+	static IMesh createMesh(IMaterial material, ShapeGeometry shape) {
+		IGeometry geometry = DefaultGeometry.createVN(shape.getTriangulation(), null);
+		IMesh mesh = new DefaultMesh(Primitive.TRIANGLES, material, geometry);
+		return mesh;
+	}
+	
+	static IMesh createMesh(IMaterial material, ShapeGeometry shape, float offset) {
+		IMesh mesh = createMesh(material, shape);
+		mesh.setPosition(new Vec3(0, 0, offset));
+		return mesh;
+	}
 }
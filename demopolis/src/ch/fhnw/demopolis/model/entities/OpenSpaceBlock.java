@@ -36,20 +36,20 @@ import java.util.List;
 import ch.fhnw.demopolis.config.I3DColors;
 import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.IUIColors;
+import ch.fhnw.demopolis.model.GenerationContext;
 import ch.fhnw.demopolis.model.Materials;
-import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.Vegetation;
 import ch.fhnw.demopolis.render.PolisMaterial;
+import ch.fhnw.demopolis.util.DistanceField;
+import ch.fhnw.demopolis.util.Fingerprint;
+import ch.fhnw.demopolis.util.SeededRandom;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
-import ch.fhnw.ether.scene.mesh.MeshUtilities;
 import ch.fhnw.ether.scene.mesh.geometry.DefaultGeometry;
 import ch.fhnw.ether.scene.mesh.material.PointMaterial;
 import ch.fhnw.util.color.RGB;
-import ch.fhnw.util.math.Mat4;
-import ch.fhnw.util.math.MathUtilities;
 import ch.fhnw.util.math.Vec3;
-import ch.fhnw.util.math.geometry.GeodesicSphere;
 import ch.fhnw.util.math.geometry.Polygon;
 
 public final class OpenSpaceBlock extends AbstractDesignEntity {
@@ -58,6 +58,10 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 	public static final float SHRUB_RADIUS = 20;
 	public static final float SHRUB_MAX_HEIGHT = 2;
 	public static final int SHRUB_MAX_PER_CLUSTER = 50;
+	// the field is kept with the block geometry: at most 256^2 floats (256kb) per block,
+	// larger blocks get coarser cells
+	public static final float SHRUB_FIELD_CELL_SIZE = 0.5f;
+	public static final int SHRUB_FIELD_MAX_CELLS = 256;
 	
 	public static final float TREE_DISTANCE = 14;
 	public static final float TREE_OFFSET = PLAZA_OFFSET * 0.75f;
@@ -146,11 +150,20 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 		}
 	}
 
-	private static final GeodesicSphere DOME = new GeodesicSphere(1);
+	private static final class PlantPositions {
+		final List<Vec3> shrubs;
+		final List<Vec3> trees;
+		
+		PlantPositions(List<Vec3> shrubs, List<Vec3> trees) {
+			this.shrubs = shrubs;
+			this.trees = trees;
+		}
+	}
 
 	private OpenSpaceType openSpaceType;
 
 	private final PolisMaterial material;
+	private final ShapeGeometry geometry;
 	private final Polygon shape;
 	private final Polygon plazaShape;
 	private final Polygon treeShape;
@@ -167,9 +180,10 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 		super(entity);
 		openSpaceType = OpenSpaceType.NON_LANDSCAPED;
 		material = new PolisMaterial(I3DColors.AMBIENT_LO, openSpaceType.designColor);
-		shape = entity.getShape();
-		plazaShape = shape.offset(PLAZA_OFFSET);
-		treeShape = shape.offset(TREE_OFFSET);
+		geometry = entity.getShapeGeometry();
+		shape = geometry.getPolygon();
+		plazaShape = geometry.getOffsetPolygon(PLAZA_OFFSET);
+		treeShape = geometry.getOffsetPolygon(TREE_OFFSET);
 	}
 	
 	public OpenSpaceType getOpenSpaceType() {
@@ -266,12 +280,17 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 	public List<Polygon> getShapes() {
 		return Collections.singletonList(shape);
 	}
+
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
+		return Collections.singletonList(geometry);
+	}
 		
 	@Override
 	public List<IMesh> getMeshes() {
 		List<IMesh> meshes = new ArrayList<>();
 		if (blockMesh == null) {
-			blockMesh = IDesignEntity.createMesh(material, shape, I3DConfig.LAYER_1);
+			blockMesh = IDesignEntity.createMesh(material, geometry, I3DConfig.LAYER_1);
 		}
 		meshes.add(blockMesh);
 		if (plazaMesh != null)
@@ -281,14 +300,33 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 		return meshes;
 	}
 	
+	@Override
+	public long getFingerprint() {
+		Fingerprint f = fingerprint().add(openSpaceType).add(shape);
+		for (PlantGroup g : shrubs)
+			f.add(g.p0).add(g.p1).add(g.radius);
+		for (PlantGroup g : trees)
+			f.add(g.p0).add(g.p1).add(g.radius);
+		return f.get();
+	}
+	
+	@Override
+	public void restore(GenerationContext context) {
+		PlantPositions positions = (PlantPositions)context.getState();
+		shrubPositions.clear();
+		shrubPositions.addAll(positions.shrubs);
+		treePositions.clear();
+		treePositions.addAll(positions.trees);
+	}
+	
 	@Override
 	public void fade(float amount) {
 		// ignored
 	}
 	
 	@Override
-	public List<IMesh> generate(Model model) {
-		Materials materials = model.getMaterials();
+	public List<IMesh> generate(GenerationContext context) {
+		Materials materials = context.getMaterials();
 		
 		List<IMesh> meshes = new ArrayList<>();
 		List<Vec3> occlusion = new ArrayList<>();
@@ -296,13 +334,13 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 		// create foundation
 		switch (getOpenSpaceType()) {
 		case NON_LANDSCAPED:
-			meshes.add(IDesignEntity.createMesh(materials.blockMaterial, getShape(), I3DConfig.LAYER_1));
+			meshes.add(IDesignEntity.createMesh(materials.blockMaterial, geometry, I3DConfig.LAYER_1));
 			break;
 		case LAWN:
-			meshes.add(IDesignEntity.createMesh(materials.greenMaterial, getShape(), I3DConfig.LAYER_1));
+			meshes.add(IDesignEntity.createMesh(materials.greenMaterial, geometry, I3DConfig.LAYER_1));
 			break;
 		case PLAZA:
-			meshes.add(IDesignEntity.createMesh(materials.greenMaterial, getShape(), I3DConfig.LAYER_1));
+			meshes.add(IDesignEntity.createMesh(materials.greenMaterial, geometry, I3DConfig.LAYER_1));
 			if (plazaShape != null)
 				meshes.add(IDesignEntity.createMesh(materials.blockMaterial, plazaShape, I3DConfig.LAYER_2));
 			break;
@@ -312,73 +350,68 @@ public final class OpenSpaceBlock extends AbstractDesignEntity {
 		
 		shrubPositions.clear();
 		treePositions.clear();
-		generateShrubs(materials, meshes, occlusion);
-		generateTrees(materials, meshes, occlusion);
+		Vegetation vegetation = new Vegetation();
+		SeededRandom random = context.getRandom();
+		generateShrubs(random, vegetation, occlusion);
+		generateTrees(random, vegetation, occlusion);
+		Vec3 center = geometry.getCenter();
+		context.addDetail(center.x, center.y, vegetation.bake(materials), vegetation.bakeFar(materials));
 		
-		model.getPopulation().addPlace(getShape(), occlusion);
+		context.addPlace(geometry, occlusion);
+		context.setState(new PlantPositions(new ArrayList<>(shrubPositions), new ArrayList<>(treePositions)));
 		return meshes;
 	}
 
-	private void generateShrubs(Materials materials, List<IMesh> meshes, List<Vec3> occlusion) {
+	private void generateShrubs(SeededRandom random, Vegetation vegetation, List<Vec3> occlusion) {
+		// signed edge distance of the block, so inside and edge clearance are a single lookup
+		DistanceField field = geometry.derive("field", p -> new DistanceField(p, SHRUB_FIELD_CELL_SIZE, SHRUB_FIELD_MAX_CELLS));
 		for (PlantGroup g : shrubs) {
-			int n = MathUtilities.random(0, SHRUB_MAX_PER_CLUSTER);
-			shrub:
+			int n = random.random(0, SHRUB_MAX_PER_CLUSTER);
 			for (int i = 0; i < n; ++i) {
-				float r = MathUtilities.random(0, g.radius);
-				float a = (float)MathUtilities.random(0, 2 * Math.PI);
+				float r = random.random(0, g.radius);
+				float a = (float)random.random(0, 2 * Math.PI);
 				float x = g.p0.x + r * (float)Math.cos(a);
 				float y = g.p0.y + r * (float)Math.sin(a);
-				float z = MathUtilities.random(0, SHRUB_MAX_HEIGHT / 2);
-				float s = MathUtilities.random(SHRUB_MAX_HEIGHT / 4, SHRUB_MAX_HEIGHT);
+				float z = random.random(0, SHRUB_MAX_HEIGHT / 2);
+				float s = random.random(SHRUB_MAX_HEIGHT / 4, SHRUB_MAX_HEIGHT);
 				
-				Vec3 position = new Vec3(x, y, 0);
-				if (shape.project(position) == null)
+				if (field.get(x, y) < s)
 					continue;
-				for (int j = 0; j < shape.getNumVertices(); ++j) {
-					if (shape.getLine(j).distance(position) < s)
-						continue shrub;
-				}
 				
-				IMesh shrub = new DefaultMesh(Primitive.TRIANGLES, materials.shrubMaterial, DefaultGeometry.createVN(DOME.getTriangles(), null));
-				shrub.setTransform(Mat4.trs(x, y, z, 0, 0, 0, s, s, s));
-				meshes.add(shrub);
+				vegetation.addShrub(x, y, z, s);
 				occlusion.add(new Vec3(x, y, s));
 				shrubPositions.add(new Vec3(x, y, 0));
 			}
 		}
 	}
 
-	private void generateTrees(Materials materials, List<IMesh> meshes, List<Vec3> occlusion) {
+	private void generateTrees(SeededRandom random, Vegetation vegetation, List<Vec3> occlusion) {
 		for (PlantGroup g : trees) {
 			Vec3 p0 = g.p0;
 			Vec3 p1 = g.p1;
-			float h = MathUtilities.random(TREE_MIN_HEIGHT, TREE_MAX_HEIGHT);
+			float h = random.random(TREE_MIN_HEIGHT, TREE_MAX_HEIGHT);
 			if (p1 == null) {
-				generateTree(materials, meshes, occlusion, p0, h);
+				generateTree(random, vegetation, occlusion, p0, h);
 			} else {
 				Vec3 d = p1.subtract(p0);
-				int n = (int)(1 + d.length() / MathUtilities.random(TREE_DISTANCE, 1.4f * TREE_DISTANCE));
+				int n = (int)(1 + d.length() / random.random(TREE_DISTANCE, 1.4f * TREE_DISTANCE));
 				for (int i = 0; i < n; ++i) {
-					if (Math.random() > 0.95)
+					if (random.random() > 0.95)
 						continue;
 					Vec3 p = p0.add(d.scale((i + 1f) / (n + 1f)));
-					generateTree(materials, meshes, occlusion, p, h);
+					generateTree(random, vegetation, occlusion, p, h);
 				}
 			}
 		}
 	}
 	
-	private void generateTree(Materials materials, List<IMesh> meshes, List<Vec3> occlusion, Vec3 position, float h) {
-		float hh = MathUtilities.random(0.9f, 1.0f) * h;
+	private void generateTree(SeededRandom random, Vegetation vegetation, List<Vec3> occlusion, Vec3 position, float h) {
+		float hh = random.random(0.9f, 1.0f) * h;
 		float w = TREE_DIAMETER_RATIO * hh;
 		float ht = hh - w;
 		float wt = TRUNK_DIAMETER;
-		IMesh tree = new DefaultMesh(Primitive.TRIANGLES, materials.treeMaterial, DefaultGeometry.createVN(DOME.getTriangles(), null));
-		tree.setTransform(Mat4.trs(position.x, position.y, ht + hh / 2, 0, 0, 0, w, w, hh));
-		IMesh trunk = MeshUtilities.createCylinder(materials.trunkMaterial, 6, false);
-		trunk.setTransform(Mat4.trs(position.x, position.y, ht / 2, 0, 0, 0, wt, wt, ht));
-		meshes.add(tree);
-		meshes.add(trunk);
+		vegetation.addCrown(position.x, position.y, ht + hh / 2, w, hh);
+		vegetation.addTrunk(position.x, position.y, ht / 2, wt, ht);
 		occlusion.add(new Vec3(position.x, position.y, wt));
 		treePositions.add(new Vec3(position.x, position.y, 0));
 	}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.model.entities;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Basis;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// immutable polygon plus memoized metrics. static shapes create one instance per
+// outline, which is then shared by all wrapper entities (block, street, etc.).
+public final class ShapeGeometry {
+	private static final Object NONE = new Object();
+	
+	private final Polygon polygon;
+	private final float extentU;
+	private final float extentV;
+	private final Vec3 center;
+
+	private float[] triangulation;
+	private Basis basis;
+	private Boolean convex;
+	private final Map<Float, ShapeGeometry> offsets = new HashMap<>();
+	private final Map<Object, Object> derived = new HashMap<>();
+
+	public ShapeGeometry(Polygon polygon) {
+		this(polygon, null);
+	}
+
+	public ShapeGeometry(Polygon polygon, float[] triangulation) {
+		this.polygon = polygon;
+		this.triangulation = triangulation;
+		this.extentU = polygon.getExtentU();
+		this.extentV = polygon.getExtentV();
+		this.center = polygon.getCenter();
+	}
+	
+	public Polygon getPolygon() {
+		return polygon;
+	}
+	
+	public float getExtentU() {
+		return extentU;
+	}
+	
+	public float getExtentV() {
+		return extentV;
+	}
+	
+	public Vec3 getCenter() {
+		return center;
+	}
+	
+	public synchronized Basis getBasis() {
+		if (basis == null)
+			basis = polygon.getBasis();
+		return basis;
+	}
+	
+	public synchronized boolean isConvex() {
+		if (convex == null)
+			convex = polygon.isConvex();
+		return convex;
+	}
+	
+	// note: the returned array is shared and must not be modified
+	public synchronized float[] getTriangulation() {
+		if (triangulation == null)
+			triangulation = polygon.getTriangleVertices();
+		return triangulation;
+	}
+	
+	// returns null if the offset polygon collapses
+	public synchronized ShapeGeometry getOffset(float offset) {
+		if (offsets.containsKey(offset))
+			return offsets.get(offset);
+		Polygon p = polygon.offset(offset);
+		ShapeGeometry g = p != null ? new ShapeGeometry(p) : null;
+		offsets.put(offset, g);
+		return g;
+	}
+	
+	public Polygon getOffsetPolygon(float offset) {
+		ShapeGeometry g = getOffset(offset);
+		return g != null ? g.getPolygon() : null;
+	}
+	
+	// memoizes arbitrary values derived from the polygon (function must be pure, may return null)
+	@SuppressWarnings("unchecked")
+	public <T> T derive(Object key, Function<Polygon, T> function) {
+		synchronized (derived) {
+			Object value = derived.get(key);
+			if (value == null) {
+				value = function.apply(polygon);
+				derived.put(key, value != null ? value : NONE);
+			}
+			return value == NONE ? null : (T)value;
+		}
+	}
+}
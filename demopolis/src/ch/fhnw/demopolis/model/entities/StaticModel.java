@@ -33,12 +33,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.I3DColors;
-import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.AssetRegistry;
+import ch.fhnw.demopolis.model.GenerationContext;
+import ch.fhnw.demopolis.model.MeshData;
 import ch.fhnw.demopolis.render.PolisMaterial;
-import ch.fhnw.ether.formats.ModelObject;
-import ch.fhnw.ether.formats.obj.ObjReader;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
@@ -47,14 +46,15 @@ import ch.fhnw.util.math.geometry.BoundingBox;
 import ch.fhnw.util.math.geometry.Polygon;
 
 public final class StaticModel extends AbstractDesignEntity {
-	private final ModelObject object;
+	private final MeshData data;
 	private final PolisMaterial material;
 	private final List<Polygon> shapes = new ArrayList<>(1);
+	private final List<ShapeGeometry> geometries = new ArrayList<>(1);
 	private List<IMesh> meshes;
 
 	public StaticModel(String asset, int id) throws IOException {
 		super(Type.BUILDING, asset, id);
-		object = new ObjReader(Asset.get(asset), ObjReader.Options.CONVERT_TO_Z_UP).getObject();
+		data = AssetRegistry.getMesh(asset);
 		material = new PolisMaterial(I3DColors.BUILDING);
 	}
 	
@@ -72,23 +72,35 @@ public final class StaticModel extends AbstractDesignEntity {
 		return shapes;
 	}
 
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
+		if (geometries.isEmpty())
+			getShapes().forEach(s -> geometries.add(new ShapeGeometry(s)));
+		return geometries;
+	}
+
 	@Override
 	public List<IMesh> getMeshes() {
 		if (meshes == null)
-			meshes = object.getMeshes(material);
+			meshes = data.createMeshes(material);
 		return meshes;
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return fingerprint().get();
+	}
+	
 	@Override
 	public void fade(float amount) {
 		material.setDiffuse(I3DColors.BUILDING.scaleRGB(amount));
 	}
 	
 	@Override
-	public List<IMesh> generate(Model model) {
+	public List<IMesh> generate(GenerationContext context) {
 		List<IMesh> m = new ArrayList<>();
 		for (IMesh mesh : meshes) {
-			m.add(new DefaultMesh(Primitive.TRIANGLES, model.getMaterials().buildingMaterial, mesh.getGeometry()));
+			m.add(new DefaultMesh(Primitive.TRIANGLES, context.getMaterials().buildingMaterial, mesh.getGeometry()));
 		}
 		return m;
 	}
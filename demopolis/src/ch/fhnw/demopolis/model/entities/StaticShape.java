@@ -33,13 +33,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.I3DColors;
 import ch.fhnw.demopolis.config.I3DConfig;
-import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.AssetRegistry;
+import ch.fhnw.demopolis.model.GenerationContext;
+import ch.fhnw.demopolis.model.MeshData;
 import ch.fhnw.demopolis.render.PolisMaterial;
-import ch.fhnw.ether.formats.ModelObject;
-import ch.fhnw.ether.formats.obj.ObjReader;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
 import ch.fhnw.ether.scene.mesh.IMesh.Primitive;
@@ -48,16 +47,19 @@ import ch.fhnw.util.math.Vec3;
 import ch.fhnw.util.math.geometry.Polygon;
 
 public final class StaticShape extends AbstractDesignEntity {
-	private final ModelObject object;
+	private final MeshData data;
 	private final PolisMaterial material;
 	private final List<Polygon> shapes = new ArrayList<>(1);
+	private final List<ShapeGeometry> geometries = new ArrayList<>(1);
 	private List<IMesh> meshes;
 
 	public StaticShape(Type type, String asset, int id) throws IOException {
 		super(type, asset, id);
-		object = new ObjReader(Asset.get(asset), ObjReader.Options.CONVERT_TO_Z_UP).getObject();
+		data = AssetRegistry.getMesh(asset);
 		material = new PolisMaterial(getFinalColor(type));
-		object.getExpandedVertices().forEach(s -> shapes.add(new Polygon(s)));
+		shapes.addAll(data.getOutlines());
+		for (int i = 0; i < shapes.size(); ++i)
+			geometries.add(new ShapeGeometry(shapes.get(i), data.getTriangulation(i)));
 	}
 
 	@Override
@@ -65,26 +67,36 @@ public final class StaticShape extends AbstractDesignEntity {
 		return shapes;
 	}
 
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
+		return geometries;
+	}
+
 	@Override
 	public List<IMesh> getMeshes() {
 		if (meshes == null) {
-			meshes = object.getMeshes(material);
+			meshes = data.createMeshes(material);
 			for (IMesh mesh : meshes) 
 				mesh.setPosition(new Vec3(0, 0, I3DConfig.LAYER_1));
 		}
 		return meshes;
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return fingerprint().get();
+	}
+	
 	@Override
 	public void fade(float amount) {
 		material.setDiffuse(getFinalColor(getType()).scaleRGB(amount));
 	}
 	
 	@Override
-	public List<IMesh> generate(Model model) {
+	public List<IMesh> generate(GenerationContext context) {
 		List<IMesh> m = new ArrayList<>();
 		for (IMesh mesh : meshes) {
-			m.add(new DefaultMesh(Primitive.TRIANGLES, model.getMaterials().getFinalMaterial(this), mesh.getGeometry()));
+			m.add(new DefaultMesh(Primitive.TRIANGLES, context.getMaterials().getFinalMaterial(this), mesh.getGeometry()));
 		}
 		return m;
 	}
@@ -36,8 +36,8 @@ import java.util.List;
 import ch.fhnw.demopolis.config.I3DColors;
 import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.config.IUIColors;
+import ch.fhnw.demopolis.model.GenerationContext;
 import ch.fhnw.demopolis.model.Materials;
-import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.Population;
 import ch.fhnw.demopolis.render.PolisMaterial;
 import ch.fhnw.ether.scene.mesh.IMesh;
@@ -91,6 +91,7 @@ public final class Street extends AbstractDesignEntity {
 	
 	private final PolisMaterial material;
 	private final List<Polygon> shapes;
+	private final List<ShapeGeometry> geometries;
 	private final List<IMesh> meshes;
 	private StreetType streetType;
 
@@ -98,6 +99,7 @@ public final class Street extends AbstractDesignEntity {
 		super(entity);
 		material = new PolisMaterial(I3DColors.AMBIENT_LO, RGB.WHITE);
 		shapes = entity.getShapes();
+		geometries = entity.getShapeGeometries();
 		meshes = new ArrayList<>();
 		
 		streetType = StreetType.getMaxType(getWidth());
@@ -122,7 +124,7 @@ public final class Street extends AbstractDesignEntity {
 	}
 
 	public float getWidth() {
-		return getShape().getExtentV();
+		return getShapeGeometry().getExtentV();
 	}
 	
 	public boolean acceptType(StreetType streetType) {
@@ -134,10 +136,15 @@ public final class Street extends AbstractDesignEntity {
 		return shapes;
 	}
 
+	@Override
+	public List<ShapeGeometry> getShapeGeometries() {
+		return geometries;
+	}
+
 	@Override
 	public List<IMesh> getMeshes() {
 		if (meshes.isEmpty()) {
-			for (Polygon shape : getShapes())
+			for (ShapeGeometry shape : getShapeGeometries())
 				meshes.add(IDesignEntity.createMesh(material, shape, I3DConfig.LAYER_1));
 			IMesh mesh = MeshUtilities.mergeMeshes(meshes).get(0);
 			meshes.clear();
@@ -146,6 +153,11 @@ public final class Street extends AbstractDesignEntity {
 		return meshes;
 	}
 	
+	@Override
+	public long getFingerprint() {
+		return fingerprint().add(streetType).add(shapes).get();
+	}
+	
 	@Override
 	public void fade(float amount) {
 		material.setAmbient(I3DColors.AMBIENT_HI);
@@ -153,17 +165,17 @@ public final class Street extends AbstractDesignEntity {
 	}
 	
 	@Override
-	public List<IMesh> generate(Model model) {
-		Materials materials = model.getMaterials();
-		Population population = model.getPopulation();
+	public List<IMesh> generate(GenerationContext context) {
+		Materials materials = context.getMaterials();
 		
 		List<IMesh> meshes = new ArrayList<>();
-		for (Polygon p : getShapes()) {
-			float width = p.getExtentV();
+		for (ShapeGeometry g : getShapeGeometries()) {
+			Polygon p = g.getPolygon();
+			float width = g.getExtentV();
 			switch (getStreetType()) {
 			case PEDESTRIAN: {
-				meshes.add(IDesignEntity.createMesh(materials.sidewalkMaterial, p, I3DConfig.LAYER_1));
-				population.addLane(p, EnumSet.of(Population.Type.PERSONS, Population.Type.CYCLISTS));
+				meshes.add(IDesignEntity.createMesh(materials.sidewalkMaterial, g, I3DConfig.LAYER_1));
+				context.addLane(p, EnumSet.of(Population.Type.PERSONS, Population.Type.CYCLISTS));
 				break;
 			}
 			case BY_ROAD: {
@@ -175,9 +187,9 @@ public final class Street extends AbstractDesignEntity {
 					//meshes.add(IDesignEntity.createMesh(materials.streetMaterial, pp[1], I3DConfig.LAYER_1));
 					meshes.add(IDesignEntity.createMesh(materials.sidewalkMaterial, pp[2], I3DConfig.LAYER_1));
 	
-					population.addLane(pp[0], EnumSet.of(Population.Type.PERSONS));
-					population.addLane(pp[1], EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
-					population.addLane(pp[2], EnumSet.of(Population.Type.PERSONS));
+					context.addLane(pp[0], EnumSet.of(Population.Type.PERSONS));
+					context.addLane(pp[1], EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
+					context.addLane(pp[2], EnumSet.of(Population.Type.PERSONS));
 					break;
 				}
 				// fall into two lane if enough budget
@@ -186,16 +198,16 @@ public final class Street extends AbstractDesignEntity {
 				Polygon[] pp = splitToHalf(p);
 				Polygon mark = makeMark(pp[0].get(3), pp[0].get(2), LANE_MARKING_WIDTH);
 				meshes.add(IDesignEntity.createMesh(materials.streetMarkMaterial, mark, I3DConfig.LAYER_1));
-				addOneLane(meshes, materials, population, pp[0]);
-				addOneLane(meshes, materials, population, pp[1]);
+				addOneLane(meshes, materials, context, pp[0]);
+				addOneLane(meshes, materials, context, pp[1]);
 				break;
 			}
 			case FOUR_LANE: {
 				Polygon[] pp = splitToHalf(p);
 				Polygon mark = makeMark(pp[0].get(3), pp[0].get(2), LANE_MARKING_WIDTH);
 				meshes.add(IDesignEntity.createMesh(materials.streetMarkMaterial, mark, I3DConfig.LAYER_1));
-				addTwoLanes(meshes, materials, population, pp[0]);
-				addTwoLanes(meshes, materials, population, pp[1]);
+				addTwoLanes(meshes, materials, context, pp[0]);
+				addTwoLanes(meshes, materials, context, pp[1]);
 				break;
 			}
 			}
@@ -213,7 +225,7 @@ public final class Street extends AbstractDesignEntity {
 	private static final float W_PARKING_2 = 2f / W_TOTAL_2;
 	//private static final float W_WALK_2 = 1f / W_TOTAL_2;
 
-	private void addOneLane(List<IMesh> meshes, Materials materials, Population population, Polygon p) {
+	private void addOneLane(List<IMesh> meshes, Materials materials, GenerationContext context, Polygon p) {
 		Vec3 v0 = p.get(0);
 		Vec3 v1 = p.get(1);
 		Vec3 v2 = p.getVertexOnEdge(1, 1 - W_LANE_1 - W_PARKING_1);
@@ -223,15 +235,15 @@ public final class Street extends AbstractDesignEntity {
 		Vec3 v6 = p.getVertexOnEdge(3, W_LANE_1);
 		Vec3 v7 = p.getVertexOnEdge(3, W_LANE_1 + W_PARKING_1);
 		meshes.add(IDesignEntity.createMesh(materials.streetMarkMaterial, makeMark(v6, v3, PARKING_MARKING_WIDTH), I3DConfig.LAYER_1));
-		population.addLane(new Polygon(v6, v3, v4, v5), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
-		population.addLane(new Polygon(v7, v2, v3, v6), EnumSet.of(Population.Type.CARS));
+		context.addLane(new Polygon(v6, v3, v4, v5), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
+		context.addLane(new Polygon(v7, v2, v3, v6), EnumSet.of(Population.Type.CARS));
 
 		Polygon sidewalk = new Polygon(v0, v1, v2, v7);
 		meshes.add(IDesignEntity.createMesh(materials.sidewalkMaterial, sidewalk, I3DConfig.LAYER_1));
-		population.addLane(sidewalk, EnumSet.of(Population.Type.PERSONS));
+		context.addLane(sidewalk, EnumSet.of(Population.Type.PERSONS));
 	}
 
-	private void addTwoLanes(List<IMesh> meshes, Materials materials, Population population, Polygon p) {
+	private void addTwoLanes(List<IMesh> meshes, Materials materials, GenerationContext context, Polygon p) {
 		Vec3 v0 = p.get(0);
 		Vec3 v1 = p.get(1);
 		Vec3 v2 = p.getVertexOnEdge(1, 1 - W_LANE_2 - W_LANE_2 - W_PARKING_2);
@@ -244,15 +256,15 @@ public final class Street extends AbstractDesignEntity {
 		Vec3 v9 = p.getVertexOnEdge(3, W_LANE_2 + W_LANE_2 + W_PARKING_2);
 
 		meshes.add(IDesignEntity.createMesh(materials.streetMarkMaterial, makeMark(v7, v4, LANE_MARKING_WIDTH), I3DConfig.LAYER_1));
-		population.addLane(new Polygon(v7, v4, v5, v6), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
-		population.addLane(new Polygon(v8, v3, v4, v7), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
-		population.addLane(new Polygon(v9, v2, v3, v8), EnumSet.of(Population.Type.CARS));
+		context.addLane(new Polygon(v7, v4, v5, v6), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
+		context.addLane(new Polygon(v8, v3, v4, v7), EnumSet.of(Population.Type.CYCLISTS, Population.Type.CARS));
+		context.addLane(new Polygon(v9, v2, v3, v8), EnumSet.of(Population.Type.CARS));
 
 		meshes.add(IDesignEntity.createMesh(materials.streetMarkMaterial, makeMark(v8, v3, PARKING_MARKING_WIDTH), I3DConfig.LAYER_1));
 		
 		Polygon sidewalk = new Polygon(v0, v1, v2, v9);
 		meshes.add(IDesignEntity.createMesh(materials.sidewalkMaterial, sidewalk, I3DConfig.LAYER_1));
-		population.addLane(sidewalk, EnumSet.of(Population.Type.PERSONS));
+		context.addLane(sidewalk, EnumSet.of(Population.Type.PERSONS));
 	}
 
 	private Polygon[] splitToInnerFixedWidth(Polygon p, float w) {
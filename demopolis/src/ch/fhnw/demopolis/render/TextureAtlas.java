@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.render;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import assets.Asset;
+import ch.fhnw.demopolis.util.BufferUtilities;
+import ch.fhnw.ether.image.Frame;
+import ch.fhnw.ether.scene.mesh.material.Texture;
+
+// packs a set of image assets into a single texture
+public final class TextureAtlas {
+	public static final int MAX_WIDTH = 4096;
+	public static final int PADDING = 2;
+
+	public static final class Region {
+		public final int x;
+		public final int y;
+		public final int width;
+		public final int height;
+		public final float s0;
+		public final float t0;
+		public final float s1;
+		public final float t1;
+
+		Region(int x, int y, int width, int height, int atlasWidth, int atlasHeight) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			// image rows run top down, texture coordinates bottom up
+			s0 = (float)x / atlasWidth;
+			s1 = (float)(x + width) / atlasWidth;
+			t0 = 1 - (float)(y + height) / atlasHeight;
+			t1 = 1 - (float)y / atlasHeight;
+		}
+
+		public float s(float s) {
+			return s0 + s * (s1 - s0);
+		}
+
+		public float t(float t) {
+			return t0 + t * (t1 - t0);
+		}
+
+		// maps interleaved st coordinates in [0, 1] into this region
+		public float[] map(float[] st) {
+			float[] result = new float[st.length];
+			for (int i = 0; i < st.length; i += 2) {
+				result[i] = s(st[i]);
+				result[i + 1] = t(st[i + 1]);
+			}
+			return result;
+		}
+	}
+
+	private final BufferedImage image;
+	private final Texture texture;
+	private final Map<String, Region> regions = new LinkedHashMap<>();
+
+	public TextureAtlas(String... assets) throws IOException {
+		BufferedImage[] images = new BufferedImage[assets.length];
+		for (int i = 0; i < assets.length; ++i) {
+			images[i] = ImageIO.read(Asset.get(assets[i]));
+			if (images[i] == null)
+				throw new IOException("cant read image: " + assets[i]);
+		}
+
+		// simple shelf packing in declaration order
+		int[] xs = new int[assets.length];
+		int[] ys = new int[assets.length];
+		int x = PADDING;
+		int y = PADDING;
+		int shelf = 0;
+		int width = 0;
+		for (int i = 0; i < images.length; ++i) {
+			int w = images[i].getWidth();
+			int h = images[i].getHeight();
+			if (w + 2 * PADDING > MAX_WIDTH)
+				throw new IllegalArgumentException("image too wide for atlas: " + assets[i]);
+			if (x + w + PADDING > MAX_WIDTH) {
+				x = PADDING;
+				y += shelf + PADDING;
+				shelf = 0;
+			}
+			xs[i] = x;
+			ys[i] = y;
+			x += w + PADDING;
+			shelf = Math.max(shelf, h);
+			width = Math.max(width, x);
+		}
+		int height = y + shelf + PADDING;
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		for (int i = 0; i < images.length; ++i) {
+			BufferedImage image = images[i];
+			int w = image.getWidth();
+			int h = image.getHeight();
+			g.drawImage(image, xs[i], ys[i], null);
+			// repeat border pixels into the padding to avoid bleeding when filtering
+			g.drawImage(image, xs[i] - PADDING, ys[i], xs[i], ys[i] + h, 0, 0, 1, h, null);
+			g.drawImage(image, xs[i] + w, ys[i], xs[i] + w + PADDING, ys[i] + h, w - 1, 0, w, h, null);
+			g.drawImage(image, xs[i], ys[i] - PADDING, xs[i] + w, ys[i], 0, 0, w, 1, null);
+			g.drawImage(image, xs[i], ys[i] + h, xs[i] + w, ys[i] + h + PADDING, 0, h - 1, w, h, null);
+			regions.put(assets[i], new Region(xs[i], ys[i], w, h, width, height));
+		}
+		g.dispose();
+
+		texture = Frame.create(image).getTexture();
+	}
+
+	private TextureAtlas(BufferedImage image) {
+		this.image = image;
+		this.texture = Frame.create(image).getTexture();
+	}
+
+	public Texture getTexture() {
+		return texture;
+	}
+
+	public Region getRegion(String asset) {
+		Region region = regions.get(asset);
+		if (region == null)
+			throw new IllegalArgumentException("no such atlas region: " + asset);
+		return region;
+	}
+
+	public int getSize() {
+		int size = 12 + image.getWidth() * image.getHeight() * 4;
+		for (String asset : regions.keySet())
+			size += BufferUtilities.getSize(asset) + 16;
+		return size;
+	}
+
+	// stores the packed pixels, so the atlas can be restored without decoding any image
+	public void write(ByteBuffer buffer) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		buffer.putInt(w);
+		buffer.putInt(h);
+		buffer.asIntBuffer().put(image.getRGB(0, 0, w, h, null, 0, w));
+		buffer.position(buffer.position() + w * h * 4);
+		buffer.putInt(regions.size());
+		for (Map.Entry<String, Region> e : regions.entrySet()) {
+			BufferUtilities.putString(buffer, e.getKey());
+			Region r = e.getValue();
+			buffer.putInt(r.x).putInt(r.y).putInt(r.width).putInt(r.height);
+		}
+	}
+
+	public void writePNG(OutputStream out) throws IOException {
+		if (!ImageIO.write(image, "png", out))
+			throw new IOException("cant write atlas as png");
+	}
+
+	public static TextureAtlas read(ByteBuffer buffer) {
+		int w = buffer.getInt();
+		int h = buffer.getInt();
+		int[] pixels = new int[w * h];
+		IntBuffer ints = buffer.asIntBuffer();
+		ints.get(pixels);
+		buffer.position(buffer.position() + w * h * 4);
+		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, w, h, pixels, 0, w);
+
+		TextureAtlas atlas = new TextureAtlas(image);
+		int n = buffer.getInt();
+		for (int i = 0; i < n; ++i) {
+			String asset = BufferUtilities.getString(buffer);
+			atlas.regions.put(asset, new Region(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), w, h));
+		}
+		return atlas;
+	}
+}
@@ -34,18 +34,16 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.IUIColors;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
 import ch.fhnw.demopolis.model.entities.IDesignEntity.IButtonInfo;
+import ch.fhnw.demopolis.render.TextureAtlas.Region;
 import ch.fhnw.demopolis.ui.ControlPanel;
 import ch.fhnw.demopolis.ui.ControlPanel.Button;
 import ch.fhnw.demopolis.ui.UI.IToolControl;
 import ch.fhnw.ether.controller.event.IKeyEvent;
-import ch.fhnw.ether.image.Frame;
 import ch.fhnw.ether.scene.IScene;
-import ch.fhnw.ether.scene.mesh.material.Texture;
 import ch.fhnw.util.color.RGB;
 import ch.fhnw.util.math.Vec3;
 
@@ -60,14 +58,14 @@ public abstract class AbstractDesignTool implements IDesignTool {
 	private final Model model;
 	private final IScene scene;
 	private final IToolControl control;
-	private final Texture texture;
+	private final Region region;
 	private final Button[] buttons;
 	
 	protected AbstractDesignTool(Model model, IScene scene, IToolControl control, String texture) throws IOException {
 		this.model = model;
 		this.scene = scene;
 		this.control = control;
-		this.texture = texture != null ? Frame.create(Asset.get(texture)).getTexture() : null;
+		this.region = texture != null ? control.getPanelAtlas().getRegion(texture) : null;
 		this.buttons = new Button[10];
 	}
 	
@@ -112,8 +110,18 @@ public abstract class AbstractDesignTool implements IDesignTool {
 		}
 	}
 	
+	@Override
+	public void entitiesAdded(List<IDesignEntity> entities) {
+		getScene().add3DObjects(IDesignEntity.getMeshes(entities));
+	}
+	
+	@Override
+	public boolean needsAllEntities() {
+		return true;
+	}
+	
 	protected void activate(ControlPanel panel, int selection) {
-		panel.setButtons(texture, buttons);
+		panel.setButtons(region, buttons);
 		panel.setSelection(selection);
 	}
 	
@@ -35,6 +35,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.BuildingBlock;
 import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
@@ -103,7 +104,7 @@ public final class BuildingHeightTool extends AbstractDesignTool {
 		}	
 	}
 	
-	private static final String TEXTURE = "gui/demopolis_ui_tool_bd_height.png";
+	private static final String TEXTURE = IUIAssets.BUILDING_HEIGHT_PANEL;
 
 	private BuildingParameter<BuildingHeight> buildingParameter = 
 			new BuildingParameter<>(b -> b.getHeight(), (b, t) -> b.setHeight(t), t -> update(t));
@@ -32,6 +32,7 @@ package ch.fhnw.demopolis.tools;
 import java.io.IOException;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.BuildingBlock;
 import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingLine;
@@ -44,7 +45,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class BuildingLineTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_bd_line.png";
+	private static final String TEXTURE = IUIAssets.BUILDING_LINE_PANEL;
 
 	private BuildingParameter<BuildingLine> buildingParameter = 
 			new BuildingParameter<>(b -> b.getLine(), (b, t) -> b.setLine(t), t -> update(t));
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.Block;
 import ch.fhnw.demopolis.model.entities.Block.BlockType;
@@ -49,7 +50,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class BuildingTypeTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_bd_type.png";
+	private static final String TEXTURE = IUIAssets.BUILDING_TYPE_PANEL;
 	
 	private BuildingType buildingType = BuildingType.NO_BUILDING;
 
@@ -32,10 +32,15 @@ package ch.fhnw.demopolis.tools;
 import java.io.IOException;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.entities.Block;
+import ch.fhnw.demopolis.model.entities.Block.BlockType;
 import ch.fhnw.demopolis.model.entities.BuildingBlock;
 import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingUse;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.model.entities.OpenSpaceBlock;
+import ch.fhnw.demopolis.model.entities.Street;
 import ch.fhnw.demopolis.tools.BuildingHeightTool.BuildingParameter;
 import ch.fhnw.demopolis.ui.ControlPanel;
 import ch.fhnw.demopolis.ui.UI.IToolControl;
@@ -44,7 +49,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class BuildingUseTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_bd_use.png";
+	private static final String TEXTURE = IUIAssets.BUILDING_USE_PANEL;
 
 	private BuildingParameter<BuildingUse> buildingParameter = 
 			new BuildingParameter<>(b -> b.getUse(), (b, t) -> b.setUse(t), t -> update(t));
@@ -71,7 +76,14 @@ public final class BuildingUseTool extends AbstractDesignTool {
 	@Override
 	public void deactivate(ControlPanel panel) {
 		super.deactivate(panel);
-		removeMeshes();		
+		removeMeshes();
+		
+		// everything except open spaces is final from here on
+		getModel().speculate(e -> !(e instanceof Street || e instanceof OpenSpaceBlock || isOpenSpace(e)), true);
+	}
+
+	private static boolean isOpenSpace(IDesignEntity e) {
+		return e instanceof Block && ((Block)e).getBlockType() == BlockType.OPEN_SPACE;
 	}
 
 	@Override
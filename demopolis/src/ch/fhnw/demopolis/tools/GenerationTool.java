@@ -34,17 +34,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ch.fhnw.demopolis.config.I3DConfig;
+import ch.fhnw.demopolis.model.Generator;
+import ch.fhnw.demopolis.model.LevelOfDetail;
 import ch.fhnw.demopolis.model.Model;
+import ch.fhnw.demopolis.model.SceneTiles;
+import ch.fhnw.demopolis.model.Speculation;
 import ch.fhnw.demopolis.model.entities.BuildingBlock;
-import ch.fhnw.demopolis.model.entities.BuildingBlock.Building;
-import ch.fhnw.demopolis.model.entities.BuildingBlock.BuildingType;
-import ch.fhnw.demopolis.model.entities.IDesignEntity;
 import ch.fhnw.demopolis.ui.ControlPanel;
 import ch.fhnw.demopolis.ui.UI.IToolControl;
+import ch.fhnw.demopolis.util.ViewCone;
+import ch.fhnw.ether.controller.IController;
 import ch.fhnw.ether.controller.event.IKeyEvent;
 import ch.fhnw.ether.scene.IScene;
+import ch.fhnw.ether.scene.camera.ICamera;
 import ch.fhnw.ether.scene.mesh.IMesh;
-import ch.fhnw.ether.scene.mesh.MeshUtilities;
 
 public final class GenerationTool extends AbstractDesignTool {
 	private enum AnimationState {
@@ -55,7 +58,8 @@ public final class GenerationTool extends AbstractDesignTool {
 		FADE_OUT_3D
 	}
 
-	private List<IMesh> meshes = new ArrayList<>();
+	private SceneTiles tiles;
+	private final LevelOfDetail detail = new LevelOfDetail();
 	
 	private AnimationState state = AnimationState.IDLE;
 	private double animationStartTime = 0;
@@ -70,19 +74,22 @@ public final class GenerationTool extends AbstractDesignTool {
 	public void activate(ControlPanel panel) {
 		fade(1);
 		
-		List<Building> buildings = getBuildings(getDesignEntities());
-		
-		// finalize building heights & plans
-		BuildingBlock.setFinalBuildingHeights(buildings);
+		// finalize building heights & plans, unless a speculative pass already did and nothing changed since
+		boolean finalHeights = false;
+		for (Speculation speculation : getModel().takeSpeculations()) {
+			if (speculation.await() && speculation.hasValidFinalHeights(getDesignEntities()))
+				finalHeights = true;
+		}
+		if (!finalHeights)
+			BuildingBlock.setFinalBuildingHeights(BuildingBlock.getBuildings(getDesignEntities()), getModel().getSeed());
 		
 		// generate all meshes
-		meshes.clear();
-		getDesignEntities().forEach(e -> meshes.addAll(e.generate(getModel())));
-		
-		System.out.println("meshes: " + meshes.size());
-		meshes = MeshUtilities.mergeMeshes(meshes);
-		System.out.println("meshes: " + meshes.size());
-		getScene().add3DObjects(meshes);
+		tiles = new SceneTiles(getModel().getScenario().getBounds(), I3DConfig.CULL_TILE_SIZE);
+		Generator.generate(getModel(), getDesignEntities(), tiles, detail);
+		tiles.build();
+		tiles.show(getScene());
+		detail.build();
+		detail.show(getScene(), LevelOfDetail.Level.NEAR);
 		
 		// write scenario to disk
 		// NOTE: it's mandatory that this is called after generation, since some data doesn't exist before
@@ -96,8 +103,12 @@ public final class GenerationTool extends AbstractDesignTool {
 	@Override
 	public void deactivate(ControlPanel panel) {
 		super.deactivate(panel);
-		getScene().remove3DObjects(meshes);
-		meshes.clear();
+		if (tiles != null) {
+			tiles.removeFromScene(getScene());
+			tiles = null;
+		}
+		detail.removeFromScene(getScene());
+		getModel().getEnvironment().addToScene(getScene());
 	}
 	
 	@Override
@@ -124,7 +135,8 @@ public final class GenerationTool extends AbstractDesignTool {
 			if (fade <= 0) {
 				state = AnimationState.FADE_IN_3D;
 				animationStartTime = time;
-				getModel().getPopulation().addToScene(getScene());
+				getModel().awaitPopulation();
+				getModel().getPopulation().addToScene(getScene(), getModel().getSeed());
 
 				// start flying while we fade in
 				getControl().setCameraPerspective();
@@ -133,18 +145,26 @@ public final class GenerationTool extends AbstractDesignTool {
 			break;
 		}
 		case FADE_IN_3D: {
+			updateDetail();
 			double fade = Math.min(1, (time - animationStartTime) / I3DConfig.FADE_TIME);
 			fade((float)fade);
 			if (fade >= 1) {
 				state = AnimationState.FLY_3D;
 				animationStartTime = time;
+				
+				// export once everything is in place and materials show their final colors
+				List<IMesh> meshes = new ArrayList<>(tiles.getMeshes());
+				meshes.addAll(detail.getMeshes(LevelOfDetail.Level.NEAR));
+				getModel().export(meshes);
 			}
 			break;
 		}
 		case FLY_3D:
+			updateDetail();
 			animationStartTime = time;
 			break;
 		case FADE_OUT_3D: {
+			updateDetail();
 			double fade = Math.max(0, 1 - (time - animationStartTime) / I3DConfig.FADE_TIME);
 			fade((float)fade);
 			if (fade <= 0) {
@@ -153,6 +173,7 @@ public final class GenerationTool extends AbstractDesignTool {
 				getModel().getPopulation().removeFromScene(getScene());
 				getControl().showControlPanel();
 				getControl().showStatusPanel();
+				// deactivate (via reset) removes the generated meshes and restores the full environment
 				getControl().reset();
 
 				// stop flying once we faded out
@@ -164,17 +185,15 @@ public final class GenerationTool extends AbstractDesignTool {
 		}
 	}
 	
-	private List<Building> getBuildings(List<IDesignEntity> entities) {
-		List<Building> buildings = new ArrayList<>();
-		for (IDesignEntity entity : entities) {
-			if (!(entity instanceof BuildingBlock))
-				continue;
-			BuildingBlock block = (BuildingBlock)entity;
-			for (Building building : block.getBuildings()) {
-				if (building.getType() != BuildingType.NO_BUILDING)
-					buildings.add(building);
-			}
-		}
-		return buildings;
+	private void updateDetail() {
+		if (tiles == null)
+			return;
+		IController controller = getControl().getController();
+		ICamera camera = controller.getCamera(controller.getCurrentView());
+		ViewCone cone = new ViewCone(camera.getPosition(), camera.getTarget(), camera.getFov(), I3DConfig.CULL_VIEW_ASPECT, camera.getFar());
+		getModel().getEnvironment().updateVisibility(getScene(), cone);
+		tiles.update(getScene(), cone);
+		detail.update(getScene(), cone);
+		getModel().getPopulation().updateDetail(getScene(), cone);
 	}
 }
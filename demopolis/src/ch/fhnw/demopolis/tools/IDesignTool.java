@@ -29,6 +29,8 @@
 
 package ch.fhnw.demopolis.tools;
 
+import java.util.List;
+
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
 import ch.fhnw.demopolis.ui.ControlPanel;
 import ch.fhnw.util.math.Vec3;
@@ -48,4 +50,10 @@ public interface IDesignTool {
 	void exited(IDesignEntity entity);
 	
 	void key(short key);
+	
+	// called when entities loaded in the background were added to the model
+	void entitiesAdded(List<IDesignEntity> entities);
+	
+	// true if the tool operates on entities loaded in the background, i.e. can only be activated once they are attached
+	boolean needsAllEntities();
 }
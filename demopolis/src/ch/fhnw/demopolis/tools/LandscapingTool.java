@@ -32,6 +32,7 @@ package ch.fhnw.demopolis.tools;
 import java.io.IOException;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.Block;
 import ch.fhnw.demopolis.model.entities.Block.BlockType;
@@ -47,7 +48,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class LandscapingTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_landscaping.png";
+	private static final String TEXTURE = IUIAssets.LANDSCAPING_PANEL;
 
 	private OpenSpaceType openSpaceType;
 	private PlantGroup group;
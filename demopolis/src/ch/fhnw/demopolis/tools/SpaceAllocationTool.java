@@ -31,9 +31,11 @@ package ch.fhnw.demopolis.tools;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.Block;
 import ch.fhnw.demopolis.model.entities.Block.BlockType;
@@ -46,7 +48,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class SpaceAllocationTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_space_alloc.png";
+	private static final String TEXTURE = IUIAssets.SPACE_ALLOCATION_PANEL;
 	
 	private final Set<IDesignEntity> removedEntities = new HashSet<>();
 
@@ -76,6 +78,31 @@ public final class SpaceAllocationTool extends AbstractDesignTool {
 		removeMeshes();
 	}
 	
+	@Override
+	public void entitiesAdded(List<IDesignEntity> entities) {
+		// buildings of blocks that were already allocated stay removed
+		Set<Integer> allocated = new HashSet<>();
+		for (IDesignEntity e : getDesignEntities()) {
+			if (e instanceof Block && ((Block)e).getBlockType() != BlockType.LEAVE_AS_IS)
+				allocated.add(e.getId());
+		}
+		for (IDesignEntity e : entities) {
+			if (e.getType() == Type.BUILDING && allocated.contains(e.getId())) {
+				getDesignEntities().remove(e);
+				removedEntities.add(e);
+			} else {
+				e.fade(I3DColors.LOW);
+				getScene().add3DObjects(e.getMeshes());
+			}
+		}
+	}
+	
+	// works on blocks, buildings are added as soon as they are loaded
+	@Override
+	public boolean needsAllEntities() {
+		return false;
+	}
+
 	@Override
 	public void clicked(IDesignEntity entity, Vec3 position) {
 		Block block = (Block)entity;
@@ -32,6 +32,7 @@ package ch.fhnw.demopolis.tools;
 import java.io.IOException;
 
 import ch.fhnw.demopolis.config.I3DColors;
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
 import ch.fhnw.demopolis.model.entities.IDesignEntity.Type;
@@ -44,7 +45,7 @@ import ch.fhnw.util.math.Vec3;
 
 public final class StreetTool extends AbstractDesignTool {
 
-	private static final String TEXTURE = "gui/demopolis_ui_tool_street.png";
+	private static final String TEXTURE = IUIAssets.STREET_PANEL;
 
 	private StreetType streetType = StreetType.FOUR_LANE;
 	
@@ -67,6 +68,9 @@ public final class StreetTool extends AbstractDesignTool {
 	public void deactivate(ControlPanel panel) {
 		super.deactivate(panel);
 		removeMeshes();
+		
+		// streets are final from here on
+		getModel().speculate(e -> e instanceof Street, false);
 	}
 	
 	@Override
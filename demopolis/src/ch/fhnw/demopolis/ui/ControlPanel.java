@@ -31,8 +31,9 @@ package ch.fhnw.demopolis.ui;
 
 import java.io.IOException;
 
+import ch.fhnw.demopolis.render.TextureAtlas;
+import ch.fhnw.demopolis.render.TextureAtlas.Region;
 import ch.fhnw.ether.controller.event.IPointerEvent;
-import ch.fhnw.ether.scene.mesh.material.Texture;
 import ch.fhnw.util.color.RGB;
 
 public class ControlPanel extends Panel {
@@ -60,12 +61,12 @@ public class ControlPanel extends Panel {
 	private int currentHighlight = -1;
 	private int currentSelection = -1;
 
-	public ControlPanel(Position position) throws IOException {
-		super(null, position);
+	public ControlPanel(TextureAtlas atlas, Position position) throws IOException {
+		super(atlas.getTexture(), position);
 	}
 	
-	public void setButtons(Texture texture, Button[] buttons) {
-		setTexture(texture);
+	public void setButtons(Region region, Button[] buttons) {
+		setRegion(region);
 		this.buttons = buttons;
 		for (int i = 1; i < buttons.length; ++i) {
 			setButtonColor(i, buttons[i] == null ? RGB.BLACK : buttons[i].color);
@@ -33,6 +33,7 @@ import java.util.List;
 
 import ch.fhnw.demopolis.config.IUIColors;
 import ch.fhnw.demopolis.render.PanelMaterial;
+import ch.fhnw.demopolis.render.TextureAtlas.Region;
 import ch.fhnw.ether.controller.IController;
 import ch.fhnw.ether.scene.mesh.DefaultMesh;
 import ch.fhnw.ether.scene.mesh.IMesh;
@@ -111,8 +112,17 @@ public class Panel {
 		return ((PanelMaterial) mesh.getMaterial()).getTexture();
 	}
 
-	void setTexture(Texture texture) {
-		((PanelMaterial) mesh.getMaterial()).setTexture(texture);
+	// selects the panel image within the texture atlas. only texture coordinates change,
+	// the texture itself stays the same.
+	void setRegion(Region region) {
+		mesh.getGeometry().modify((attributes, data) -> {
+			float[] v = data[0];
+			float[] t = data[2];
+			for (int i = 0, j = 0; j < t.length; i += 3, j += 2) {
+				t[j] = region.s(v[i] / PANEL_W);
+				t[j + 1] = region.t(v[i + 1] / PANEL_H);
+			}
+		});
 	}
 
 	int getButton(float x, float y, float w, float h) {
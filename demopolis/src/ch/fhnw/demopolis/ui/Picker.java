@@ -29,11 +29,14 @@
 
 package ch.fhnw.demopolis.ui;
 
+import java.util.List;
 import java.util.function.Predicate;
 
+import ch.fhnw.demopolis.config.I3DConfig;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
 import ch.fhnw.demopolis.tools.IDesignTool;
+import ch.fhnw.demopolis.util.BoundsGrid;
 import ch.fhnw.ether.controller.event.IPointerEvent;
 import ch.fhnw.ether.scene.camera.IViewCameraState;
 import ch.fhnw.ether.view.ProjectionUtilities;
@@ -52,6 +55,10 @@ public class Picker {
 	private Predicate<IDesignEntity> entityFilter = DEFAULT_FILTER;
 
 	private IDesignEntity previousHoverEntity;
+	
+	private final BoundsGrid grid = new BoundsGrid(I3DConfig.PICK_CELL_SIZE);
+	private int gridVersion;
+	private boolean gridValid;
 
 	public Picker(Model model) {
 		this.model = model;
@@ -85,7 +92,9 @@ public class Picker {
 	private Pair<IDesignEntity, Vec3> pickEntity(IPointerEvent e) {
 		Vec3 p = getPositionOnGround(e);
 		if (p != null) {
-			for (IDesignEntity entity : model.getDesignEntities()) {
+			List<IDesignEntity> entities = model.getDesignEntities();
+			for (int i : getCandidates(entities, p)) {
+				IDesignEntity entity = entities.get(i);
 				if (!entityFilter.test(entity))
 					continue;
 				if (insideEntity(p, entity))
@@ -95,6 +104,34 @@ public class Picker {
 		return new Pair<>(null, p);
 	}
 
+	// entities whose shape bounds may contain p, in list order. the grid is rebuilt
+	// lazily after the design entity list was modified.
+	private List<Integer> getCandidates(List<IDesignEntity> entities, Vec3 p) {
+		int version = model.getDesignVersion();
+		if (!gridValid || version != gridVersion) {
+			grid.clear();
+			for (int i = 0; i < entities.size(); ++i) {
+				for (Polygon shape : entities.get(i).getShapes()) {
+					float minX = Float.POSITIVE_INFINITY;
+					float minY = Float.POSITIVE_INFINITY;
+					float maxX = Float.NEGATIVE_INFINITY;
+					float maxY = Float.NEGATIVE_INFINITY;
+					for (Vec3 v : shape.asList()) {
+						minX = Math.min(minX, v.x);
+						minY = Math.min(minY, v.y);
+						maxX = Math.max(maxX, v.x);
+						maxY = Math.max(maxY, v.y);
+					}
+					if (minX <= maxX)
+						grid.add(i, minX, minY, maxX, maxY);
+				}
+			}
+			gridVersion = version;
+			gridValid = true;
+		}
+		return grid.get(p.x, p.y);
+	}
+
 	private Vec3 getPositionOnGround(IPointerEvent e) {
 		IViewCameraState state = e.getView().getController().getRenderManager().getViewCameraState(e.getView());
 		Line line = ProjectionUtilities.getRay(state, e.getX(), e.getY());
@@ -31,9 +31,8 @@ package ch.fhnw.demopolis.ui;
 
 import java.io.IOException;
 
-import assets.Asset;
 import ch.fhnw.demopolis.config.IUIColors;
-import ch.fhnw.ether.image.Frame;
+import ch.fhnw.demopolis.render.TextureAtlas;
 import ch.fhnw.util.color.RGB;
 
 public class StatusPanel extends Panel {
@@ -43,8 +42,9 @@ public class StatusPanel extends Panel {
 	public static final RGB COLOR_LEVEL_CURRENT = IUIColors.GREEN_C;
 	public static final RGB COLOR_LEVEL_OPEN = IUIColors.GRAY_A;
 
-	public StatusPanel(String path, Position position) throws IOException {
-		super(Frame.create(Asset.get(path)).getTexture(), position);
+	public StatusPanel(TextureAtlas atlas, String path, Position position) throws IOException {
+		super(atlas.getTexture(), position);
+		setRegion(atlas.getRegion(path));
 	}
 
 	public void setLevel(int level) {
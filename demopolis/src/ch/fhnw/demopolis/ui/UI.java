@@ -30,10 +30,13 @@
 package ch.fhnw.demopolis.ui;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.function.Predicate;
 
+import ch.fhnw.demopolis.config.IUIAssets;
 import ch.fhnw.demopolis.model.Model;
 import ch.fhnw.demopolis.model.entities.IDesignEntity;
+import ch.fhnw.demopolis.render.TextureAtlas;
 import ch.fhnw.demopolis.tools.BuildingHeightTool;
 import ch.fhnw.demopolis.tools.BuildingLineTool;
 import ch.fhnw.demopolis.tools.BuildingSetbackTool;
@@ -45,6 +48,8 @@ import ch.fhnw.demopolis.tools.LandscapingTool;
 import ch.fhnw.demopolis.tools.SpaceAllocationTool;
 import ch.fhnw.demopolis.tools.StreetTool;
 import ch.fhnw.demopolis.ui.Panel.Position;
+import ch.fhnw.demopolis.util.StartupTracer;
+import ch.fhnw.demopolis.util.StartupTracer.Phase;
 import ch.fhnw.ether.controller.IController;
 import ch.fhnw.ether.controller.event.IKeyEvent;
 import ch.fhnw.ether.controller.event.IPointerEvent;
@@ -79,12 +84,31 @@ public class UI {
 		void stopAnimation();
 		
 		IController getController();
+		
+		TextureAtlas getPanelAtlas();
 	}
 
 	private final IToolControl toolControl = new IToolControl() {
 		@Override
 		public void nextTool() {
 			if (currentDesignTool < designTools.length - 1) {
+				// tools that operate on the complete scenario are switched to once loading completed,
+				// without blocking the scene thread
+				if (designTools[currentDesignTool + 1].needsAllEntities() && !model.isEntitiesLoaded()) {
+					if (pendingDesignTool < 0) {
+						pendingDesignTool = currentDesignTool + 1;
+						model.whenEntitiesLoaded(() -> controller.run(time -> {
+							// skip if reset in the meantime
+							if (pendingDesignTool == currentDesignTool + 1) {
+								pendingDesignTool = -1;
+								nextTool();
+							}
+						}));
+					}
+					return;
+				}
+				pendingDesignTool = -1;
+				attachLoadedEntities();
 				designTools[currentDesignTool].deactivate(controlPanel);
 				dumpStatus("after level " + currentDesignTool);
 				currentDesignTool++;
@@ -102,6 +126,7 @@ public class UI {
 
 			if (currentDesignTool > -1)
 				designTools[currentDesignTool].deactivate(controlPanel);
+			pendingDesignTool = -1;
 
 			dumpStatus("after reset");
 			
@@ -178,9 +203,15 @@ public class UI {
 		public IController getController() {
 			return controller;
 		}
+		
+		@Override
+		public TextureAtlas getPanelAtlas() {
+			return panelAtlas;
+		}
 	};
 	
 	private final Model model;
+	private final TextureAtlas panelAtlas;
 	private final StatusPanel statusPanel;
 	private final ControlPanel controlPanel;
 	private final Picker picker;
@@ -194,12 +225,16 @@ public class UI {
 
 	private IDesignTool[] designTools;
 	private int currentDesignTool = -1;
+	private int pendingDesignTool = -1;
 	
 	public UI(Model model) throws IOException {
 		this.model = model;
 
-		statusPanel = new StatusPanel("gui/demopolis_ui_status.png", Position.LEFT);
-		controlPanel = new ControlPanel(Position.RIGHT);
+		try (Phase phase = StartupTracer.begin("panels")) {
+			panelAtlas = new TextureAtlas(IUIAssets.PANELS);
+			statusPanel = new StatusPanel(panelAtlas, IUIAssets.STATUS_PANEL, Position.LEFT);
+			controlPanel = new ControlPanel(panelAtlas, Position.RIGHT);
+		}
 		picker = new Picker(model);
 	}
 
@@ -293,20 +328,25 @@ public class UI {
 		});
 
 		IScene scene = controller.getScene();
-		designTools = new IDesignTool[] {
-			new SpaceAllocationTool(model, scene, toolControl),
-			new StreetTool(model, scene, toolControl),
-			new BuildingTypeTool(model, scene, toolControl),
-			new BuildingHeightTool(model, scene, toolControl),
-			new BuildingLineTool(model, scene, toolControl),
-			new BuildingSetbackTool(model, scene, toolControl),
-			new BuildingUseTool(model, scene, toolControl),
-			new LandscapingTool(model, scene, toolControl),
-			new GenerationTool(model, scene, toolControl),
-		};
+		try (Phase phase = StartupTracer.begin("tools")) {
+			designTools = new IDesignTool[] {
+				new SpaceAllocationTool(model, scene, toolControl),
+				new StreetTool(model, scene, toolControl),
+				new BuildingTypeTool(model, scene, toolControl),
+				new BuildingHeightTool(model, scene, toolControl),
+				new BuildingLineTool(model, scene, toolControl),
+				new BuildingSetbackTool(model, scene, toolControl),
+				new BuildingUseTool(model, scene, toolControl),
+				new LandscapingTool(model, scene, toolControl),
+				new GenerationTool(model, scene, toolControl),
+			};
+		}
 
-		model.getEnvironment().addToScene(scene);
-		toolControl.reset();
+		try (Phase p = StartupTracer.begin("reset")) {
+			model.getEnvironment().addToScene(scene);
+			toolControl.reset();
+		}
+		model.whenEntitiesLoaded(() -> controller.run(time -> attachLoadedEntities()));
 		
 		controller.setTool(navigationTool);
 		
@@ -320,6 +360,12 @@ public class UI {
 		controlPanel.viewResized(w, h);
 	}
 	
+	private void attachLoadedEntities() {
+		List<IDesignEntity> entities = model.attachLoadedEntities();
+		if (!entities.isEmpty() && currentDesignTool > -1)
+			designTools[currentDesignTool].entitiesAdded(entities);
+	}
+	
 	private void dumpStatus(String where) {
 		if (DBG)
 			System.err.println(where + ": " + controller.getScene().get3DObjects().size() + " objects in scene");
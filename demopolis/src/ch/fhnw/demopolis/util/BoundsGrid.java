@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// uniform grid hash of 2d bounding boxes tagged with ids. ids must be added in
+// ascending order, so each cell lists its candidates in that order.
+public final class BoundsGrid {
+	private final float cellSize;
+	private final Map<Long, List<Integer>> cells = new HashMap<>();
+	private int size;
+
+	public BoundsGrid(float cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("cell size must be positive: " + cellSize);
+		this.cellSize = cellSize;
+	}
+
+	public void add(int id, float minX, float minY, float maxX, float maxY) {
+		for (int cx = cell(minX), x1 = cell(maxX); cx <= x1; ++cx) {
+			for (int cy = cell(minY), y1 = cell(maxY); cy <= y1; ++cy) {
+				List<Integer> cell = cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>());
+				// several boxes of the same id may overlap a cell
+				if (!cell.isEmpty() && cell.get(cell.size() - 1) == id)
+					continue;
+				if (!cell.isEmpty() && cell.get(cell.size() - 1) > id)
+					throw new IllegalArgumentException("ids must be added in ascending order: " + id);
+				cell.add(id);
+			}
+		}
+		size++;
+	}
+
+	// returns the ids of all boxes whose cells contain (x, y), in ascending order
+	public List<Integer> get(float x, float y) {
+		List<Integer> cell = cells.get(key(cell(x), cell(y)));
+		return cell != null ? Collections.unmodifiableList(cell) : Collections.emptyList();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		cells.clear();
+		size = 0;
+	}
+
+	private int cell(float v) {
+		return (int)Math.floor(v / cellSize);
+	}
+
+	private static long key(int cx, int cy) {
+		return ((long)cx << 32) | (cy & 0xffffffffL);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// signed distance to the outline of a polygon (xy plane), sampled on a regular grid.
+// positive inside, negative outside. lookups are bilinear and allocation free.
+public final class DistanceField {
+	private final float x0;
+	private final float y0;
+	private final float cellSize;
+	private final int nx;
+	private final int ny;
+	private final float[] values;
+
+	// maxCells bounds the samples per axis (including the border sample), so a field
+	// holds at most maxCells^2 floats
+	public DistanceField(Polygon polygon, float cellSize, int maxCells) {
+		if (maxCells < 3)
+			throw new IllegalArgumentException("need at least 3 cells per axis: " + maxCells);
+		int n = polygon.getNumVertices();
+		if (n < 3)
+			throw new IllegalArgumentException("polygon needs at least 3 vertices");
+
+		float[] xs = new float[n];
+		float[] ys = new float[n];
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; ++i) {
+			Vec3 v = polygon.get(i);
+			xs[i] = v.x;
+			ys[i] = v.y;
+			minX = Math.min(minX, v.x);
+			minY = Math.min(minY, v.y);
+			maxX = Math.max(maxX, v.x);
+			maxY = Math.max(maxY, v.y);
+		}
+
+		// grow cells for large polygons so the grid stays within maxCells per axis:
+		// floor(extent / cellSize) + 1 cells cover the extent, plus one border sample
+		float extent = Math.max(maxX - minX, maxY - minY);
+		this.cellSize = Math.max(cellSize, extent / (maxCells - 2));
+		this.x0 = minX;
+		this.y0 = minY;
+		this.nx = Math.min(maxCells, 2 + (int)((maxX - minX) / this.cellSize));
+		this.ny = Math.min(maxCells, 2 + (int)((maxY - minY) / this.cellSize));
+		this.values = new float[nx * ny];
+
+		for (int j = 0; j < ny; ++j) {
+			float y = y0 + j * this.cellSize;
+			for (int i = 0; i < nx; ++i) {
+				float x = x0 + i * this.cellSize;
+				values[j * nx + i] = signedDistance(xs, ys, x, y);
+			}
+		}
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	// returns the interpolated signed distance, or negative infinity outside the grid
+	public float get(float x, float y) {
+		float u = (x - x0) / cellSize;
+		float v = (y - y0) / cellSize;
+		if (u < 0 || v < 0 || u > nx - 1 || v > ny - 1)
+			return Float.NEGATIVE_INFINITY;
+		int i = Math.min((int)u, nx - 2);
+		int j = Math.min((int)v, ny - 2);
+		float fu = u - i;
+		float fv = v - j;
+		int k = j * nx + i;
+		float d0 = values[k] + fu * (values[k + 1] - values[k]);
+		float d1 = values[k + nx] + fu * (values[k + nx + 1] - values[k + nx]);
+		return d0 + fv * (d1 - d0);
+	}
+
+	private static float signedDistance(float[] xs, float[] ys, float x, float y) {
+		float d2 = Float.POSITIVE_INFINITY;
+		boolean inside = false;
+		for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+			float ax = xs[j];
+			float ay = ys[j];
+			float ex = xs[i] - ax;
+			float ey = ys[i] - ay;
+			float px = x - ax;
+			float py = y - ay;
+			float l2 = ex * ex + ey * ey;
+			float t = l2 > 0 ? Math.max(0, Math.min(1, (px * ex + py * ey) / l2)) : 0;
+			float dx = px - t * ex;
+			float dy = py - t * ey;
+			d2 = Math.min(d2, dx * dx + dy * dy);
+
+			if ((ys[i] > y) != (ay > y) && x < ax + (y - ay) * ex / ey)
+				inside = !inside;
+		}
+		float d = (float)Math.sqrt(d2);
+		return inside ? d : -d;
+	}
+}
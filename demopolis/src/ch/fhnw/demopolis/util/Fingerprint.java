@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import java.util.List;
+
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.Polygon;
+
+// 64 bit fnv-1a hash builder for stable fingerprints of design parameters
+public final class Fingerprint {
+	private static final long OFFSET = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+
+	private long hash = OFFSET;
+
+	public Fingerprint add(long value) {
+		for (int i = 0; i < 8; ++i) {
+			hash ^= value & 0xff;
+			hash *= PRIME;
+			value >>>= 8;
+		}
+		return this;
+	}
+
+	public Fingerprint add(int value) {
+		return add((long)value);
+	}
+
+	public Fingerprint add(boolean value) {
+		return add(value ? 1 : 0);
+	}
+
+	public Fingerprint add(float value) {
+		return add(Float.floatToIntBits(value));
+	}
+
+	public Fingerprint add(String value) {
+		if (value == null)
+			return add(-1);
+		add(value.length());
+		for (int i = 0; i < value.length(); ++i)
+			add((int)value.charAt(i));
+		return this;
+	}
+
+	public Fingerprint add(Enum<?> value) {
+		return add(value == null ? -1 : value.ordinal());
+	}
+
+	public Fingerprint add(Vec3 value) {
+		if (value == null)
+			return add(-1);
+		return add(value.x).add(value.y).add(value.z);
+	}
+
+	public Fingerprint add(Polygon value) {
+		if (value == null)
+			return add(-1);
+		add(value.getNumVertices());
+		for (int i = 0; i < value.getNumVertices(); ++i)
+			add(value.get(i));
+		return this;
+	}
+
+	public Fingerprint add(List<Polygon> values) {
+		add(values.size());
+		values.forEach(this::add);
+		return this;
+	}
+
+	public long get() {
+		return hash;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+// static 3d k-d tree over a flat xyz point array, answers nearest neighbour queries in O(log n)
+public final class KdTree {
+	private static final int K = 3;
+
+	private static final class Query {
+		final float[] p;
+		final int exclude;
+		float best = Float.POSITIVE_INFINITY;
+		int index = -1;
+
+		Query(float x, float y, float z, int exclude) {
+			this.p = new float[] { x, y, z };
+			this.exclude = exclude;
+		}
+	}
+
+	private final float[] points;
+	private final int[] index;
+
+	public KdTree(float[] points) {
+		if (points.length % K != 0)
+			throw new IllegalArgumentException("point array length must be a multiple of 3");
+		this.points = points;
+		this.index = new int[points.length / K];
+		for (int i = 0; i < index.length; ++i)
+			index[i] = i;
+		build(0, index.length, 0);
+	}
+
+	public int size() {
+		return index.length;
+	}
+
+	// returns index of the nearest point other than exclude, or -1 if there is none
+	public int nearest(float x, float y, float z, int exclude) {
+		Query q = new Query(x, y, z, exclude);
+		nearest(q, 0, index.length, 0);
+		return q.index;
+	}
+
+	// returns distance from point i to its nearest other point, or infinity if there is none
+	public float nearestDistance(int i) {
+		Query q = new Query(points[K * i], points[K * i + 1], points[K * i + 2], i);
+		nearest(q, 0, index.length, 0);
+		return (float)Math.sqrt(q.best);
+	}
+
+	private void build(int lo, int hi, int axis) {
+		if (hi - lo <= 1)
+			return;
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, axis);
+		int next = (axis + 1) % K;
+		build(lo, mid, next);
+		build(mid + 1, hi, next);
+	}
+
+	// quickselect: afterwards index[k] is the median of [lo, hi] along axis
+	private void select(int lo, int hi, int k, int axis) {
+		while (hi > lo) {
+			float pivot = coord(index[(lo + hi) >>> 1], axis);
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (coord(index[i], axis) < pivot)
+					i++;
+				while (coord(index[j], axis) > pivot)
+					j--;
+				if (i <= j) {
+					int t = index[i];
+					index[i] = index[j];
+					index[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	private void nearest(Query q, int lo, int hi, int axis) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		int p = index[mid];
+		if (p != q.exclude) {
+			float dx = points[K * p] - q.p[0];
+			float dy = points[K * p + 1] - q.p[1];
+			float dz = points[K * p + 2] - q.p[2];
+			float d = dx * dx + dy * dy + dz * dz;
+			if (d < q.best) {
+				q.best = d;
+				q.index = p;
+			}
+		}
+		float delta = q.p[axis] - coord(p, axis);
+		int next = (axis + 1) % K;
+		if (delta < 0) {
+			nearest(q, lo, mid, next);
+			if (delta * delta < q.best)
+				nearest(q, mid + 1, hi, next);
+		} else {
+			nearest(q, mid + 1, hi, next);
+			if (delta * delta < q.best)
+				nearest(q, lo, mid, next);
+		}
+	}
+
+	private float coord(int i, int axis) {
+		return points[K * i + axis];
+	}
+}
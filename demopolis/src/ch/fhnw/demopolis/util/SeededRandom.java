@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import java.util.SplittableRandom;
+
+// seeded random source for generation. unlike Math.random, results only depend on
+// the seed, so identical designs generate identical output. not thread-safe: use
+// one instance per task and split() for sub tasks.
+public final class SeededRandom {
+	private final SplittableRandom random;
+
+	public SeededRandom(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	private SeededRandom(SplittableRandom random) {
+		this.random = random;
+	}
+
+	public SeededRandom split() {
+		return new SeededRandom(random.split());
+	}
+
+	// returns a random value in [0, 1)
+	public float random() {
+		return (float)random.nextDouble();
+	}
+
+	// returns a random value in [min, max)
+	public float random(float min, float max) {
+		return min + (max - min) * random();
+	}
+
+	// returns a random value in [min, max)
+	public double random(double min, double max) {
+		return min + (max - min) * random.nextDouble();
+	}
+
+	// returns a random value in [min, max], inclusive as MathUtilities.random
+	public int random(int min, int max) {
+		return random.nextInt(min, max + 1);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import ch.fhnw.util.FloatList;
+
+// uniform grid hash of 2d discs (x, y, radius) for allocation-free proximity tests.
+// cells live in an open addressing table keyed by primitive longs, so lookups do not box.
+public final class SpatialHash {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final float cellSize;
+	private long[] keys = new long[INITIAL_CAPACITY];
+	private FloatList[] cells = new FloatList[INITIAL_CAPACITY];
+	private int numCells;
+	private float maxRadius;
+	private int size;
+
+	public SpatialHash(float cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("cell size must be positive: " + cellSize);
+		this.cellSize = cellSize;
+	}
+
+	public void add(float x, float y, float radius) {
+		long key = key(cell(x), cell(y));
+		int slot = find(keys, cells, key);
+		FloatList cell = cells[slot];
+		if (cell == null) {
+			if (2 * (numCells + 1) > cells.length) {
+				grow();
+				slot = find(keys, cells, key);
+			}
+			cell = new FloatList();
+			keys[slot] = key;
+			cells[slot] = cell;
+			numCells++;
+		}
+		cell.add(x);
+		cell.add(y);
+		cell.add(radius);
+		maxRadius = Math.max(maxRadius, radius);
+		size++;
+	}
+
+	// returns true if the disc at (x, y) with given radius overlaps any disc in the hash
+	public boolean intersects(float x, float y, float radius) {
+		float reach = radius + maxRadius;
+		int x0 = cell(x - reach);
+		int x1 = cell(x + reach);
+		int y0 = cell(y - reach);
+		int y1 = cell(y + reach);
+		for (int cx = x0; cx <= x1; ++cx) {
+			for (int cy = y0; cy <= y1; ++cy) {
+				FloatList cell = cells[find(keys, cells, key(cx, cy))];
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.size(); i += 3) {
+					float dx = cell.get(i) - x;
+					float dy = cell.get(i + 1) - y;
+					float r = cell.get(i + 2) + radius;
+					if (dx * dx + dy * dy < r * r)
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		FloatList[] oldCells = cells;
+		keys = new long[oldKeys.length * 2];
+		cells = new FloatList[oldCells.length * 2];
+		for (int i = 0; i < oldCells.length; ++i) {
+			if (oldCells[i] == null)
+				continue;
+			int slot = find(keys, cells, oldKeys[i]);
+			keys[slot] = oldKeys[i];
+			cells[slot] = oldCells[i];
+		}
+	}
+
+	private int cell(float v) {
+		return (int)Math.floor(v / cellSize);
+	}
+
+	// returns the slot holding key, or the empty slot where it would be inserted (linear probing)
+	private static int find(long[] keys, FloatList[] cells, long key) {
+		int mask = keys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int)(h ^ (h >>> 32)) & mask;
+		while (cells[slot] != null && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private static long key(int cx, int cy) {
+		return ((long)cx << 32) | (cy & 0xffffffffL);
+	}
+}
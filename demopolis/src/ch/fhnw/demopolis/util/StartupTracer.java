@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
+
+import ch.fhnw.demopolis.config.ILogConfig;
+
+// records nested start-up phases (wall time and heap delta) and reports them once at first frame
+public final class StartupTracer {
+	public static final class Phase implements AutoCloseable {
+		private final String name;
+		private final String thread;
+		private final Phase parent;
+		private final List<Phase> children = new ArrayList<>();
+		private final long startTime;
+		private final long startHeap;
+		private long time = -1;
+		private long heap;
+
+		private Phase(String name, Phase parent) {
+			this.name = name;
+			this.thread = Thread.currentThread().getName();
+			this.parent = parent;
+			this.startTime = System.nanoTime();
+			this.startHeap = getUsedHeap();
+		}
+
+		@Override
+		public void close() {
+			long t = System.nanoTime() - startTime;
+			long h = getUsedHeap() - startHeap;
+			// report() reads phases of other threads under the same lock
+			synchronized (ROOTS) {
+				if (time >= 0)
+					return;
+				time = t;
+				heap = h;
+			}
+			CURRENT.set(parent);
+		}
+	}
+
+	private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+	private static final List<Phase> ROOTS = new ArrayList<>();
+
+	private static volatile boolean reported = !ILogConfig.TRACE_STARTUP;
+
+	public static Phase begin(String name) {
+		Phase parent = CURRENT.get();
+		Phase phase = new Phase(name, parent);
+		synchronized (ROOTS) {
+			if (!reported) {
+				if (parent != null)
+					parent.children.add(phase);
+				else
+					ROOTS.add(phase);
+			}
+		}
+		CURRENT.set(phase);
+		return phase;
+	}
+
+	public static void report() {
+		// called every frame, only the first call needs the lock
+		if (reported)
+			return;
+		synchronized (ROOTS) {
+			if (reported)
+				return;
+			reported = true;
+
+			long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+			System.out.println("startup: first frame after " + uptime + "ms");
+			for (Phase phase : ROOTS)
+				print(phase, "  ");
+
+			try {
+				write(ILogConfig.BASE_PATH + "/startup" + System.currentTimeMillis() + ".txt", uptime);
+			} catch (Exception e) {
+				System.err.println("cant write startup report: " + e);
+			}
+			ROOTS.clear();
+		}
+	}
+
+	private static void print(Phase phase, String indent) {
+		String time = phase.time >= 0 ? (phase.time / 1000000) + "ms" : "unfinished";
+		System.out.println(indent + phase.name + ": " + time + ", heap " + (phase.heap >= 0 ? "+" : "") + (phase.heap / 1024) + "kb [" + phase.thread + "]");
+		for (Phase child : phase.children)
+			print(child, indent + "  ");
+	}
+
+	private static void write(String filename, long uptime) throws IOException {
+		JsonGeneratorFactory jf = Json.createGeneratorFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true));
+		try (FileWriter writer = new FileWriter(filename, false); JsonGenerator gen = jf.createGenerator(writer)) {
+			gen.writeStartObject();
+			gen.write("first_frame_ms", uptime);
+			gen.writeStartArray("phases");
+			for (Phase phase : ROOTS)
+				write(gen, phase);
+			gen.writeEnd();
+			gen.writeEnd();
+		}
+	}
+
+	private static void write(JsonGenerator gen, Phase phase) {
+		gen.writeStartObject();
+		gen.write("name", phase.name);
+		gen.write("thread", phase.thread);
+		// phases running in the background may not have finished at first frame
+		if (phase.time >= 0) {
+			gen.write("time_ms", phase.time / 1000000.0);
+			gen.write("heap_kb", phase.heap / 1024);
+		} else {
+			gen.writeNull("time_ms");
+			gen.writeNull("heap_kb");
+		}
+		gen.write("finished", phase.time >= 0);
+		gen.writeStartArray("phases");
+		for (Phase child : phase.children)
+			write(gen, child);
+		gen.writeEnd();
+		gen.writeEnd();
+	}
+
+	private static long getUsedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015 - 2016 Stefan Muller Arisona, Simon Schubiger
+ * Copyright (c) 2015 - 2016 FHNW & ETH Zurich
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *  Neither the name of FHNW / ETH Zurich nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.fhnw.demopolis.util;
+
+import ch.fhnw.util.math.Vec3;
+import ch.fhnw.util.math.geometry.BoundingBox;
+
+// conservative view frustum test: the frustum is enclosed by a cone around the view
+// direction (half angle from the vertical fov and the aspect), bounded by the far plane.
+// only needs camera position, target, fov and far plane.
+public final class ViewCone {
+	private final Vec3 position;
+	private final float dx;
+	private final float dy;
+	private final float dz;
+	private final float sin;
+	private final float cos;
+	private final float far;
+
+	public ViewCone(Vec3 position, Vec3 target, float fov, float aspect, float far) {
+		Vec3 d = target.subtract(position).normalize();
+		double t = Math.tan(Math.toRadians(fov) / 2);
+		double angle = Math.atan(t * Math.sqrt(1 + aspect * aspect));
+		this.position = position;
+		this.dx = d.x;
+		this.dy = d.y;
+		this.dz = d.z;
+		this.sin = (float)Math.sin(angle);
+		this.cos = (float)Math.cos(angle);
+		this.far = far;
+	}
+
+	public Vec3 getPosition() {
+		return position;
+	}
+
+	public boolean intersects(BoundingBox b) {
+		if (b == null || !b.isValid())
+			return false;
+		float ex = b.getExtentX() / 2;
+		float ey = b.getExtentY() / 2;
+		float ez = b.getExtentZ() / 2;
+		return intersects(b.getCenterX(), b.getCenterY(), b.getCenterZ(), (float)Math.sqrt(ex * ex + ey * ey + ez * ez));
+	}
+
+	// sphere test
+	public boolean intersects(float x, float y, float z, float radius) {
+		float vx = x - position.x;
+		float vy = y - position.y;
+		float vz = z - position.z;
+		float l2 = vx * vx + vy * vy + vz * vz;
+		if (l2 <= radius * radius)
+			return true;
+		float d = vx * dx + vy * dy + vz * dz;
+		if (d < -radius || d - radius > far)
+			return false;
+		float lateral = (float)Math.sqrt(Math.max(0, l2 - d * d));
+		// signed distance of the sphere center to the cone surface
+		return lateral * cos - d * sin <= radius;
+	}
+}